@@ -0,0 +1,100 @@
+package com.oddfar.campus.benchmark;
+
+import cn.hutool.crypto.Mode;
+import cn.hutool.crypto.Padding;
+import cn.hutool.crypto.symmetric.AES;
+import com.oddfar.campus.business.utils.IMTCrypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约加密、签名的基准测试
+ * <p>
+ * legacy* 为改造前的实现：每次调用新建 hutool AES，逐字节 String.format 转十六进制；
+ * 使用 -prof gc 查看每次调用的内存分配（gc.alloc.rate.norm）
+ *
+ * @author oddfar
+ */
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class CryptoBenchmark {
+
+    private static final String SALT = "2af72f100c356273d46284f6fd1dfc08";
+    private static final String AES_KEY = "qbhajinldepmucsonaaaccgypwuvcjaa";
+    private static final String AES_IV = "2018534749963515";
+
+    /**
+     * 与预约请求中 actParam 的明文结构一致
+     */
+    private String params;
+
+    private String encrypted;
+
+    private String mobile;
+
+    private long time;
+
+    @Setup
+    public void setup() {
+        params = "{\"itemInfoList\":[{\"count\":1,\"itemId\":\"10941\"}],\"sessionId\":\"1076\","
+                + "\"userId\":\"1104563726\",\"shopId\":\"133330100001\"}";
+        encrypted = IMTCrypto.aesEncrypt(params);
+        mobile = "13800138000";
+        time = 1700000000000L;
+    }
+
+    @Benchmark
+    public String legacyAesEncrypt() {
+        AES aes = new AES(Mode.CBC, Padding.PKCS5Padding, AES_KEY.getBytes(), AES_IV.getBytes());
+        return aes.encryptBase64(params);
+    }
+
+    @Benchmark
+    public String aesEncrypt() {
+        return IMTCrypto.aesEncrypt(params);
+    }
+
+    @Benchmark
+    public String legacyAesDecrypt() {
+        AES aes = new AES(Mode.CBC, Padding.PKCS5Padding, AES_KEY.getBytes(), AES_IV.getBytes());
+        return aes.decryptStr(encrypted);
+    }
+
+    @Benchmark
+    public String aesDecrypt() {
+        return IMTCrypto.aesDecrypt(encrypted);
+    }
+
+    @Benchmark
+    public String legacySignature() throws Exception {
+        String text = SALT + mobile + time;
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] hashBytes = md.digest(text.getBytes());
+        StringBuilder sb = new StringBuilder();
+        for (byte b : hashBytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String signature() {
+        return IMTCrypto.signature(mobile, time);
+    }
+}
@@ -0,0 +1,63 @@
+package com.oddfar.campus.benchmark;
+
+import com.oddfar.campus.business.entity.IUser;
+import com.oddfar.campus.business.http.HeaderTemplate;
+import com.oddfar.campus.business.service.impl.IMTServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构建预约请求的基准测试
+ * <p>
+ * 直接调用 buildReservation 使用的 IMTServiceImpl.reservationBody 和 reservationHeaders
+ *
+ * @author oddfar
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class ReservationPayloadBenchmark {
+
+    private IUser iUser;
+
+    private HeaderTemplate appTemplate;
+
+    @Setup
+    public void setup() {
+        iUser = new IUser();
+        iUser.setMobile(13800138000L);
+        iUser.setUserId(1104563726L);
+        iUser.setDeviceId("2f2a4e6a-9d4b-4c8e-8a2b-6f1e3c5d7a90");
+        iUser.setToken("eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9");
+        iUser.setLat("30.27");
+        iUser.setLng("120.15");
+        appTemplate = HeaderTemplate.of(
+                "MT-APP-Version", "1.6.1",
+                "User-Agent", "iOS;16.3;Apple;?unrecognized?");
+    }
+
+    @Benchmark
+    public String body() {
+        return IMTServiceImpl.reservationBody(iUser, "10941", "1076", "133330100001");
+    }
+
+    @Benchmark
+    public HeaderTemplate headers() {
+        return IMTServiceImpl.reservationHeaders(appTemplate, iUser);
+    }
+}
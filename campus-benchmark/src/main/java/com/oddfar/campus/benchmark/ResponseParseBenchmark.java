@@ -0,0 +1,97 @@
+package com.oddfar.campus.benchmark;
+
+import com.oddfar.campus.business.domain.IMTItemInfo;
+import com.oddfar.campus.business.domain.IMTReservationItem;
+import com.oddfar.campus.business.service.impl.IMTServiceImpl;
+import com.oddfar.campus.business.service.impl.IShopServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用 fastjson2 解析上游响应的基准测试
+ * <p>
+ * 直接调用投放门店（getShopsByProvince）和申购记录（appointmentResult）使用的解析方法
+ *
+ * @author oddfar
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParseBenchmark {
+
+    private static final String PROVINCE = "浙江省";
+
+    private static final String ITEM_ID = "10941";
+
+    private static final String[] ITEM_IDS = {"10941", "10942", "2478", "10056"};
+
+    /**
+     * 投放门店数
+     */
+    @Param({"100", "500"})
+    private int shops;
+
+    private String shopsResponse;
+
+    private String reservationListResponse;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("{\"code\":2000,\"data\":{\"validTime\":1700000000000,\"shops\":[");
+        for (int i = 0; i < shops; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"shopId\":\"").append(133330100000L + i).append("\",\"items\":[");
+            for (int j = 0; j < ITEM_IDS.length; j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"count\":1,\"maxReserveCount\":1,\"defaultReserveCount\":1,\"itemId\":\"")
+                        .append(ITEM_IDS[j]).append("\",\"inventory\":").append(random.nextInt(500))
+                        .append(",\"ownerName\":\"贵州茅台酒股份有限公司\"}");
+            }
+            sb.append("]}");
+        }
+        shopsResponse = sb.append("]}}").toString();
+
+        sb = new StringBuilder("{\"code\":2000,\"data\":{\"reservationItemVOS\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"itemId\":\"").append(ITEM_IDS[i % ITEM_IDS.length])
+                    .append("\",\"itemName\":\"贵州茅台酒（癸卯兔年）\",\"shopId\":\"133330100001\",\"sessionId\":")
+                    .append(1076 - i).append(",\"status\":").append(i % 3)
+                    .append(",\"reservationTime\":").append(1700000000000L - i * 86400000L).append('}');
+        }
+        reservationListResponse = sb.append("]}}").toString();
+    }
+
+    @Benchmark
+    public List<IMTItemInfo> shops() {
+        return IShopServiceImpl.parseShopsByProvince(shopsResponse, PROVINCE, ITEM_ID);
+    }
+
+    @Benchmark
+    public List<IMTReservationItem> reservationList() {
+        return IMTServiceImpl.parseReservationItems(reservationListResponse);
+    }
+}
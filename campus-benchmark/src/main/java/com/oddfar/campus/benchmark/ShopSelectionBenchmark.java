@@ -0,0 +1,163 @@
+package com.oddfar.campus.benchmark;
+
+import com.oddfar.campus.business.cache.ShopCandidates;
+import com.oddfar.campus.business.domain.IMTItemInfo;
+import com.oddfar.campus.business.domain.MapPoint;
+import com.oddfar.campus.business.entity.IShop;
+import com.oddfar.campus.business.service.impl.IShopServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 选择预约门店的基准测试
+ * <p>
+ * 门店总数为全国门店的量级，投放门店为某省某商品的量级；
+ * legacy* 为改造前 getShopId 的实现：按投放门店过滤全部门店，再逐个计算距离、排序
+ *
+ * @author oddfar
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShopSelectionBenchmark {
+
+    private static final String PROVINCE = "浙江省";
+
+    private static final String[] CITIES = {"杭州市", "宁波市", "温州市", "嘉兴市", "湖州市", "绍兴市",
+            "金华市", "衢州市", "舟山市", "台州市", "丽水市"};
+
+    /**
+     * 门店总数
+     */
+    @Param({"1000", "5000"})
+    private int shops;
+
+    /**
+     * 投放门店数
+     */
+    @Param({"100", "500"})
+    private int candidates;
+
+    private List<IShop> allShops;
+
+    private Map<String, IShop> shopsById;
+
+    private List<IMTItemInfo> items;
+
+    private ShopCandidates shopCandidates;
+
+    private MapPoint userPoint;
+
+    private MapPoint shopPoint;
+
+    private double lat;
+
+    private double lng;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        allShops = new ArrayList<>(shops);
+        shopsById = new HashMap<>(shops * 2);
+        for (int i = 0; i < shops; i++) {
+            IShop shop = new IShop();
+            shop.setIShopId(String.valueOf(233330100000L + i));
+            // 约三分之一的门店在本省，其余分布在外省
+            boolean local = i % 3 == 0;
+            shop.setProvinceName(local ? PROVINCE : "外省" + (i % 30));
+            shop.setCityName(local ? CITIES[i % CITIES.length] : "外市" + (i % 300));
+            shop.setLat(String.valueOf(local ? 27 + random.nextDouble() * 4 : 18 + random.nextDouble() * 30));
+            shop.setLng(String.valueOf(local ? 118 + random.nextDouble() * 4 : 90 + random.nextDouble() * 40));
+            allShops.add(shop);
+            shopsById.put(shop.getIShopId(), shop);
+        }
+
+        // 投放门店取自本省门店
+        items = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates && i * 3 < shops; i++) {
+            items.add(new IMTItemInfo(allShops.get(i * 3).getIShopId(), 1, "10941", random.nextInt(500)));
+        }
+        shopCandidates = ShopCandidates.build(items, shopsById, PROVINCE);
+
+        lat = 30.27;
+        lng = 120.15;
+        userPoint = new MapPoint(lat, lng);
+        shopPoint = new MapPoint(29.87, 121.54);
+    }
+
+    @Benchmark
+    public Double getDisdance() {
+        return IShopServiceImpl.getDisdance(userPoint, shopPoint);
+    }
+
+    @Benchmark
+    public ShopCandidates buildCandidates() {
+        return ShopCandidates.build(items, shopsById, PROVINCE);
+    }
+
+    @Benchmark
+    public String nearestShopId() {
+        return shopCandidates.nearestShopId(lat, lng);
+    }
+
+    @Benchmark
+    public String maxInventoryShopId() {
+        return shopCandidates.maxInventoryShopId("杭州市");
+    }
+
+    /**
+     * 每个用户都重新构建候选门店，相当于本地缓存未命中
+     */
+    @Benchmark
+    public String coldNearestShopId() {
+        return ShopCandidates.build(items, shopsById, PROVINCE).nearestShopId(lat, lng);
+    }
+
+    @Benchmark
+    public String legacyNearestShopId() {
+        List<String> shopIdList = items.stream().map(IMTItemInfo::getShopId).collect(Collectors.toList());
+        List<IShop> list = allShops.stream().filter(i -> shopIdList.contains(i.getIShopId())).collect(Collectors.toList());
+        List<IShop> provinceShops = list.stream().filter(iShop -> iShop.getProvinceName().contains(PROVINCE))
+                .collect(Collectors.toList());
+        for (IShop iShop : provinceShops) {
+            MapPoint point = new MapPoint(Double.parseDouble(iShop.getLat()), Double.parseDouble(iShop.getLng()));
+            iShop.setDistance(IShopServiceImpl.getDisdance(userPoint, point));
+        }
+        List<IShop> sorted = provinceShops.stream().sorted(Comparator.comparing(IShop::getDistance))
+                .collect(Collectors.toList());
+        return sorted.isEmpty() ? null : sorted.get(0).getIShopId();
+    }
+
+    @Benchmark
+    public String legacyMaxInventoryShopId() {
+        List<String> shopIdList = items.stream().map(IMTItemInfo::getShopId).collect(Collectors.toList());
+        List<IShop> list = allShops.stream().filter(i -> shopIdList.contains(i.getIShopId())).collect(Collectors.toList());
+        List<String> cityShopIdList = list.stream().filter(iShop -> iShop.getCityName().contains("杭州市"))
+                .map(IShop::getIShopId).collect(Collectors.toList());
+        List<IMTItemInfo> collect = items.stream().filter(i -> cityShopIdList.contains(i.getShopId()))
+                .sorted(Comparator.comparing(IMTItemInfo::getInventory).reversed()).collect(Collectors.toList());
+        return collect.isEmpty() ? null : collect.get(0).getShopId();
+    }
+}
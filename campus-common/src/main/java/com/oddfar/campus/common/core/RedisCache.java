@@ -3,7 +3,9 @@ package com.oddfar.campus.common.core;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.BoundSetOperations;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Component;
 
@@ -76,6 +78,37 @@ public class RedisCache {
         return redisTemplate.getExpire(key);
     }
 
+    /**
+     * 重命名key，目标key已存在时被原子地覆盖
+     *
+     * @param oldKey 原Redis键
+     * @param newKey 新Redis键
+     */
+    public void rename(final String oldKey, final String newKey) {
+        redisTemplate.rename(oldKey, newKey);
+    }
+
+    /**
+     * 自增
+     *
+     * @param key Redis键
+     * @return 自增后的值
+     */
+    public long increment(final String key) {
+        Long value = redisTemplate.opsForValue().increment(key);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 发布消息
+     *
+     * @param channel 频道
+     * @param message 消息内容
+     */
+    public void publish(final String channel, final Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
     /**
      * 判断 key是否存在
      *
@@ -167,6 +200,25 @@ public class RedisCache {
         return setOperation;
     }
 
+    /**
+     * 向Set中添加元素并设置有效时间，两条命令通过管道一次发送
+     *
+     * @param key     缓存键值
+     * @param value   添加的元素
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     */
+    public <T> void addCacheSet(final String key, final T value, final long timeout, final TimeUnit unit) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public Object execute(RedisOperations operations) {
+                operations.opsForSet().add(key, value);
+                operations.expire(key, timeout, unit);
+                return null;
+            }
+        });
+    }
+
     /**
      * 获得缓存的set
      *
@@ -177,6 +229,65 @@ public class RedisCache {
         return redisTemplate.opsForSet().members(key);
     }
 
+    /**
+     * 不存在时才缓存基本对象
+     *
+     * @param key      缓存的键值
+     * @param value    缓存的值
+     * @param timeout  时间
+     * @param timeUnit 时间颗粒度
+     * @return true=设置成功；false=已存在
+     */
+    public <T> boolean setCacheObjectIfAbsent(final String key, final T value, final long timeout, final TimeUnit timeUnit) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value, timeout, timeUnit));
+    }
+
+    /**
+     * 添加有序集合成员，已存在时更新分数
+     *
+     * @param key   缓存的键值
+     * @param value 成员
+     * @param score 分数
+     */
+    public <T> void addCacheZSet(final String key, final T value, final double score) {
+        redisTemplate.opsForZSet().add(key, value, score);
+    }
+
+    /**
+     * 获得分数在区间内的有序集合成员
+     *
+     * @param key 缓存的键值
+     * @param min 最小分数
+     * @param max 最大分数
+     * @return 按分数升序排列的成员
+     */
+    public <T> Set<T> getCacheZSet(final String key, final double min, final double max) {
+        return redisTemplate.opsForZSet().rangeByScore(key, min, max);
+    }
+
+    /**
+     * 删除分数在区间内的有序集合成员
+     *
+     * @param key 缓存的键值
+     * @param min 最小分数
+     * @param max 最大分数
+     * @return 删除的成员数
+     */
+    public long removeCacheZSetByScore(final String key, final double min, final double max) {
+        Long count = redisTemplate.opsForZSet().removeRangeByScore(key, min, max);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 删除有序集合成员
+     *
+     * @param key   缓存的键值
+     * @param value 成员
+     */
+    public <T> void deleteCacheZSetValue(final String key, final T value) {
+        redisTemplate.opsForZSet().remove(key, value);
+    }
+
     /**
      * 缓存Map
      *
@@ -5,6 +5,7 @@ import com.oddfar.campus.framework.security.handle.AuthenticationEntryPointImpl;
 import com.oddfar.campus.framework.security.handle.LogoutSuccessHandlerImpl;
 import com.oddfar.campus.framework.security.properties.PermitAllUrlProperties;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -65,6 +66,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private PermitAllUrlProperties permitAllUrl;
 
+    /**
+     * 独立的管理端口，未配置时为-1
+     */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     /**
      * 解决 无法直接注入 AuthenticationManager
      *
@@ -112,6 +119,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 // 静态资源，可匿名访问
                 .antMatchers(HttpMethod.GET, "/", "/*.html", "/**/*.html", "/**/*.css", "/**/*.js", "/profile/**").permitAll()
                 .antMatchers("/swagger-ui.html", "/swagger-resources/**", "/webjars/**", "/*/api-docs", "/druid/**").permitAll()
+                // 运行指标只在独立的管理端口上开放，应用端口上仍需认证
+                .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort).permitAll()
                 // 除上面外的所有请求全部需要鉴权认证
                 .anyRequest().authenticated()
                 .and()
@@ -0,0 +1,63 @@
+package com.oddfar.campus.business.cache;
+
+import com.oddfar.campus.business.entity.IItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某个场次的预约商品目录
+ * <p>
+ * 获取场次时解析出的商品列表，整体替换，不可修改
+ *
+ * @author oddfar
+ */
+public final class ItemCatalog {
+
+    public static final ItemCatalog EMPTY = new ItemCatalog(null, Collections.emptyList(), Collections.emptyMap());
+
+    private final String sessionId;
+
+    private final List<IItem> items;
+
+    private final Map<String, IItem> byCode;
+
+    private ItemCatalog(String sessionId, List<IItem> items, Map<String, IItem> byCode) {
+        this.sessionId = sessionId;
+        this.items = items;
+        this.byCode = byCode;
+    }
+
+    public static ItemCatalog of(String sessionId, List<IItem> items) {
+        Map<String, IItem> byCode = new HashMap<>(items.size() * 2);
+        for (IItem iItem : items) {
+            byCode.put(iItem.getItemCode(), iItem);
+        }
+        return new ItemCatalog(sessionId, Collections.unmodifiableList(new ArrayList<>(items)),
+                Collections.unmodifiableMap(byCode));
+    }
+
+    /**
+     * 根据商品编码获取商品
+     *
+     * @return 商品，本场次没有该商品时返回null
+     */
+    public IItem get(String itemCode) {
+        return itemCode == null ? null : byCode.get(itemCode);
+    }
+
+    public boolean contains(String itemCode) {
+        return get(itemCode) != null;
+    }
+
+    public List<IItem> items() {
+        return items;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+}
@@ -0,0 +1,102 @@
+package com.oddfar.campus.business.cache;
+
+import com.oddfar.campus.business.domain.IMTItemInfo;
+import com.oddfar.campus.business.entity.IShop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某场次、某省、某商品的可预约门店
+ * <p>
+ * 投放门店与门店信息一次性关联，预先算好每个城市库存最多的门店，并对本省门店建立空间索引，
+ * 同省同商品的所有用户共享，选择门店时不再遍历门店列表
+ *
+ * @author oddfar
+ */
+public final class ShopCandidates {
+
+    /**
+     * 城市 -> 该城市库存最多的门店
+     */
+    private final Map<String, IMTItemInfo> bestByCity;
+
+    /**
+     * 本省可预约门店的空间索引
+     */
+    private final ShopSpatialIndex index;
+
+    private final long createdAt = System.nanoTime();
+
+    private ShopCandidates(Map<String, IMTItemInfo> bestByCity, ShopSpatialIndex index) {
+        this.bestByCity = bestByCity;
+        this.index = index;
+    }
+
+    /**
+     * 构建可预约门店
+     *
+     * @param items     投放门店及库存（getShopsByProvince 的结果）
+     * @param shopsById 门店ID -> 门店信息
+     * @param province  省份
+     */
+    public static ShopCandidates build(List<IMTItemInfo> items, Map<String, IShop> shopsById, String province) {
+        Map<String, IMTItemInfo> bestByCity = new HashMap<>();
+        List<IShop> provinceShops = new ArrayList<>(items.size());
+        for (IMTItemInfo item : items) {
+            IShop shop = shopsById.get(item.getShopId());
+            if (shop == null) {
+                continue;
+            }
+            if (shop.getCityName() != null) {
+                // 库存相同时保留先出现的门店
+                IMTItemInfo best = bestByCity.get(shop.getCityName());
+                if (best == null || item.getInventory() > best.getInventory()) {
+                    bestByCity.put(shop.getCityName(), item);
+                }
+            }
+            if (shop.getProvinceName() != null && shop.getProvinceName().contains(province)) {
+                provinceShops.add(shop);
+            }
+        }
+        return new ShopCandidates(bestByCity, ShopSpatialIndex.build(provinceShops));
+    }
+
+    /**
+     * 本市库存最多的门店
+     *
+     * @param city 城市
+     * @return 门店ID，本市没有可预约门店时返回null
+     */
+    public String maxInventoryShopId(String city) {
+        IMTItemInfo best = bestByCity.get(city);
+        if (best == null && city != null) {
+            // 城市名称不完全一致时，按包含关系匹配
+            for (Map.Entry<String, IMTItemInfo> entry : bestByCity.entrySet()) {
+                if (entry.getKey().contains(city)
+                        && (best == null || entry.getValue().getInventory() > best.getInventory())) {
+                    best = entry.getValue();
+                }
+            }
+        }
+        return best == null ? null : best.getShopId();
+    }
+
+    /**
+     * 本省距离最近的门店
+     *
+     * @return 门店ID，本省没有可预约门店时返回null
+     */
+    public String nearestShopId(double lat, double lng) {
+        return index.nearest(lat, lng);
+    }
+
+    /**
+     * 构建后是否已超过指定时间
+     */
+    public boolean isOlderThan(long nanos) {
+        return System.nanoTime() - createdAt > nanos;
+    }
+}
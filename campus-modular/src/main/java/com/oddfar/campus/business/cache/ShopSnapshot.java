@@ -0,0 +1,76 @@
+package com.oddfar.campus.business.cache;
+
+import com.oddfar.campus.business.entity.IShop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 门店列表的本地只读快照
+ * <p>
+ * 每次刷新门店后整体替换，版本号与 Redis 中的门店版本一致，
+ * 各节点通过 Redis 发布订阅得知新版本后重新加载，错过通知时由定时的版本比对补上；快照中的门店对象只读，不能修改
+ *
+ * @author oddfar
+ */
+public final class ShopSnapshot {
+
+    /**
+     * 门店刷新通知频道，消息内容为新的版本号
+     */
+    public static final String CHANNEL = "mt_shop_refresh";
+
+    public static final ShopSnapshot EMPTY = new ShopSnapshot(0L, Collections.emptyList(), Collections.emptyMap());
+
+    private final long version;
+
+    private final List<IShop> shops;
+
+    private final Map<String, IShop> byId;
+
+    private ShopSnapshot(long version, List<IShop> shops, Map<String, IShop> byId) {
+        this.version = version;
+        this.shops = shops;
+        this.byId = byId;
+    }
+
+    public static ShopSnapshot of(long version, List<IShop> shops) {
+        Map<String, IShop> byId = new HashMap<>(shops.size() * 2);
+        for (IShop iShop : shops) {
+            byId.put(iShop.getIShopId(), iShop);
+        }
+        return new ShopSnapshot(version, Collections.unmodifiableList(new ArrayList<>(shops)),
+                Collections.unmodifiableMap(byId));
+    }
+
+    /**
+     * 根据门店ID获取门店
+     *
+     * @return 门店，不存在时返回null
+     */
+    public IShop get(String iShopId) {
+        return iShopId == null ? null : byId.get(iShopId);
+    }
+
+    public List<IShop> shops() {
+        return shops;
+    }
+
+    /**
+     * 门店ID -> 门店
+     */
+    public Map<String, IShop> byId() {
+        return byId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return shops.isEmpty();
+    }
+}
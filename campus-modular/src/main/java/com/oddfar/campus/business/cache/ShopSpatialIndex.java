@@ -0,0 +1,224 @@
+package com.oddfar.campus.business.cache;
+
+import com.oddfar.campus.business.entity.IShop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 门店空间索引
+ * <p>
+ * 将门店经纬度解析一次后按固定大小的经纬度网格排列在基本类型数组中，
+ * 最近门店查询从所在网格开始逐圈向外搜索，当下一圈的最小可能距离已超过当前最近距离时停止。
+ * 由 ShopCandidates 按场次、省份和商品的可预约门店构建，每组候选门店一份；
+ * 构建后不可变，可被多个线程共享，查询不修改任何门店对象
+ *
+ * @author oddfar
+ */
+public final class ShopSpatialIndex {
+
+    /**
+     * 地球半径（米），与 IShopServiceImpl.getDisdance 保持一致
+     */
+    private static final double EARTH_RADIUS = 6378137.0;
+
+    /**
+     * 网格大小（度），约22公里
+     */
+    private static final double CELL_DEGREES = 0.2;
+
+    /**
+     * 按网格排序后的门店
+     */
+    private final String[] shopIds;
+    private final double[] lats;
+    private final double[] lngs;
+
+    /**
+     * 非空网格的key（升序）及其在门店数组中的起始位置，cellStarts 比 cellKeys 多一个结束位置
+     */
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+
+    private final int minRow;
+    private final int maxRow;
+    private final int minCol;
+    private final int maxCol;
+
+    /**
+     * 所有门店纬度绝对值的最大值的余弦，用于计算经度方向的最小距离
+     */
+    private final double minCosLat;
+
+    private ShopSpatialIndex(String[] shopIds, double[] lats, double[] lngs, long[] cellKeys, int[] cellStarts,
+                             int minRow, int maxRow, int minCol, int maxCol, double minCosLat) {
+        this.shopIds = shopIds;
+        this.lats = lats;
+        this.lngs = lngs;
+        this.cellKeys = cellKeys;
+        this.cellStarts = cellStarts;
+        this.minRow = minRow;
+        this.maxRow = maxRow;
+        this.minCol = minCol;
+        this.maxCol = maxCol;
+        this.minCosLat = minCosLat;
+    }
+
+    /**
+     * 构建索引，经纬度无法解析的门店忽略
+     *
+     * @param shops 门店
+     * @return 索引
+     */
+    public static ShopSpatialIndex build(Collection<IShop> shops) {
+        int n = 0;
+        String[] ids = new String[shops.size()];
+        double[] latArr = new double[shops.size()];
+        double[] lngArr = new double[shops.size()];
+        for (IShop shop : shops) {
+            try {
+                double lat = Double.parseDouble(shop.getLat());
+                double lng = Double.parseDouble(shop.getLng());
+                ids[n] = shop.getIShopId();
+                latArr[n] = lat;
+                lngArr[n] = lng;
+                n++;
+            } catch (NullPointerException | NumberFormatException ignored) {
+                // 经纬度缺失的门店无法参与距离计算
+            }
+        }
+
+        // 按网格key排序
+        long[] keys = new long[n];
+        Integer[] order = new Integer[n];
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE, minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+        double maxAbsLat = 0;
+        for (int i = 0; i < n; i++) {
+            int row = row(latArr[i]);
+            int col = col(lngArr[i]);
+            keys[i] = key(row, col);
+            order[i] = i;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+            maxAbsLat = Math.max(maxAbsLat, Math.abs(latArr[i]));
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        String[] sortedIds = new String[n];
+        double[] sortedLats = new double[n];
+        double[] sortedLngs = new double[n];
+        List<Long> cellKeyList = new ArrayList<>();
+        List<Integer> cellStartList = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int src = order[i];
+            sortedIds[i] = ids[src];
+            sortedLats[i] = latArr[src];
+            sortedLngs[i] = lngArr[src];
+            if (i == 0 || keys[src] != keys[order[i - 1]]) {
+                cellKeyList.add(keys[src]);
+                cellStartList.add(i);
+            }
+        }
+        cellStartList.add(n);
+
+        long[] cellKeys = new long[cellKeyList.size()];
+        for (int i = 0; i < cellKeys.length; i++) {
+            cellKeys[i] = cellKeyList.get(i);
+        }
+        int[] cellStarts = new int[cellStartList.size()];
+        for (int i = 0; i < cellStarts.length; i++) {
+            cellStarts[i] = cellStartList.get(i);
+        }
+        return new ShopSpatialIndex(sortedIds, sortedLats, sortedLngs, cellKeys, cellStarts,
+                minRow, maxRow, minCol, maxCol, Math.cos(Math.toRadians(Math.min(90, maxAbsLat))));
+    }
+
+    /**
+     * 查询最近的门店
+     *
+     * @param lat 纬度
+     * @param lng 经度
+     * @return 门店ID，索引为空时返回null
+     */
+    public String nearest(double lat, double lng) {
+        if (shopIds.length == 0) {
+            return null;
+        }
+        int row = row(lat);
+        int col = col(lng);
+        // 查询点可能在所有门店的网格范围之外
+        int maxRing = Math.max(Math.max(Math.abs(row - minRow), Math.abs(row - maxRow)),
+                Math.max(Math.abs(col - minCol), Math.abs(col - maxCol)));
+        double cosLat = Math.min(minCosLat, Math.cos(Math.toRadians(Math.min(90, Math.abs(lat)))));
+
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // 第 ring 圈的门店与查询点至少相隔 ring-1 个网格
+            if (best >= 0 && lowerBound(ring - 1, cosLat) > bestDistance) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                boolean edgeRow = r == row - ring || r == row + ring;
+                // 中间行只取左右两端的网格
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int c = col - ring; c <= col + ring; c += step) {
+                    int cell = Arrays.binarySearch(cellKeys, key(r, c));
+                    if (cell < 0) {
+                        continue;
+                    }
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        double d = distance(lat, lng, lats[i], lngs[i]);
+                        if (d < bestDistance) {
+                            bestDistance = d;
+                            best = i;
+                        }
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : shopIds[best];
+    }
+
+    /**
+     * 相隔 cells 个网格的两点间的最小球面距离
+     */
+    private static double lowerBound(int cells, double cosLat) {
+        if (cells <= 0) {
+            return 0;
+        }
+        double delta = Math.toRadians(cells * CELL_DEGREES);
+        // 纬度方向为 R*delta，经度方向在高纬度处更短，取较小者
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, cosLat * Math.sin(delta / 2)));
+    }
+
+    /**
+     * 球面距离（米），与 IShopServiceImpl.getDisdance 的公式一致
+     */
+    static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double radLat1 = lat1 * Math.PI / 180;
+        double radLat2 = lat2 * Math.PI / 180;
+        double latDifference = radLat1 - radLat2;
+        double lngDifference = lng1 * Math.PI / 180 - lng2 * Math.PI / 180;
+        double sinLat = Math.sin(latDifference / 2);
+        double sinLng = Math.sin(lngDifference / 2);
+        return 2 * Math.asin(Math.sqrt(sinLat * sinLat
+                + Math.cos(radLat1) * Math.cos(radLat2) * sinLng * sinLng)) * EARTH_RADIUS;
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / CELL_DEGREES);
+    }
+
+    private static int col(double lng) {
+        return (int) Math.floor(lng / CELL_DEGREES);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,112 @@
+package com.oddfar.campus.business.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 同键请求合并
+ * <p>
+ * 同一个键同时只有一个加载在执行，其余调用方等待并共享它的结果，加载结束后立即移除，
+ * 之后的调用重新加载（结果由调用方自行缓存）
+ *
+ * @author oddfar
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 实际执行的加载次数
+     */
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * 合并到其他加载上的调用次数
+     */
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 加载并等待结果，同键已有加载在执行时直接等待它
+     *
+     * @param key    键
+     * @param loader 加载逻辑，在发起加载的调用线程中执行
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            shared.incrementAndGet();
+            return join(running);
+        }
+        load(key, future, loader);
+        return join(future);
+    }
+
+    /**
+     * 在后台加载，同键已有加载在执行时什么也不做
+     *
+     * @param key      键
+     * @param loader   加载逻辑
+     * @param executor 执行加载的线程池
+     * @return 是否发起了新的加载
+     */
+    public boolean executeAsync(K key, Supplier<V> loader, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return false;
+        }
+        try {
+            executor.execute(() -> load(key, future, loader));
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return true;
+    }
+
+    private void load(K key, CompletableFuture<V> future, Supplier<V> loader) {
+        loads.incrementAndGet();
+        try {
+            future.complete(loader.get());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // 等待方看到与加载方相同的异常
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public long getShared() {
+        return shared.get();
+    }
+}
@@ -0,0 +1,256 @@
+package com.oddfar.campus.business.cache;
+
+import cn.hutool.core.convert.Convert;
+import com.oddfar.campus.business.entity.IUser;
+import com.oddfar.campus.business.mapper.IUserMapper;
+import com.oddfar.campus.common.core.RedisCache;
+import com.oddfar.campus.common.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 预约用户分钟索引
+ * <p>
+ * 每日加载一次符合预约条件的用户（已设置经纬度和预约商品），按预约分钟分到60个桶中，
+ * 批量预约、旅行等每分钟任务直接读取，不再查询数据库。隔天首次访问时整体重新加载。
+ * <p>
+ * 多节点按同一份用户列表分片，因此用户变化要同步到所有节点：变化时自增 Redis 中的版本号并广播，
+ * 收到连续版本的节点按手机号增量更新，版本不连续、批量修改预约分钟或定时比对发现落后时整体重新加载
+ *
+ * @author oddfar
+ */
+@Component
+public class UserMinuteIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserMinuteIndex.class);
+
+    private static final int BUCKETS = 60;
+
+    /**
+     * 用户变化通知频道，消息内容为“版本号:手机号,手机号”，没有手机号表示整体重新加载
+     */
+    public static final String CHANNEL = "mt_user_refresh";
+
+    /**
+     * 用户版本号，每次用户变化后自增
+     */
+    private static final String VERSION_KEY = "mt_user_version";
+
+    @Autowired
+    private IUserMapper iUserMapper;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 获取某个分钟的预约用户
+     *
+     * @param minute 预约分钟
+     * @return 不可变的用户列表
+     */
+    public List<IUser> get(int minute) {
+        if (minute < 0 || minute >= BUCKETS) {
+            return Collections.emptyList();
+        }
+        return current().buckets[minute];
+    }
+
+    /**
+     * 获取所有预约用户
+     *
+     * @return 不可变的用户列表
+     */
+    public List<IUser> all() {
+        return current().all;
+    }
+
+    /**
+     * 根据手机号获取预约用户
+     *
+     * @param mobile 手机号
+     * @return 用户，不是预约用户时返回null
+     */
+    public IUser get(Long mobile) {
+        return mobile == null ? null : current().byMobile.get(mobile);
+    }
+
+    /**
+     * 从数据库重新加载
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        // 先读版本号再查询，查询期间的变化会使版本号领先，之后再次加载
+        long version = currentVersion();
+        List<IUser> users = iUserMapper.selectReservationUser();
+        Map<Long, IUser> byMobile = new HashMap<>(users.size() * 2);
+        for (IUser user : users) {
+            if (isEligible(user)) {
+                byMobile.put(user.getMobile(), user);
+            }
+        }
+        snapshot = new Snapshot(LocalDate.now(), version, byMobile);
+        logger.info("「预约用户索引」加载完成，版本: {}, 用户数: {}, 耗时: {}ms",
+                version, byMobile.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 用户新增、修改或删除后，更新本节点并通知其他节点按数据库中的最新数据更新
+     *
+     * @param mobiles 手机号
+     */
+    public void changed(Long... mobiles) {
+        if (mobiles == null || mobiles.length == 0) {
+            return;
+        }
+        publish(mobiles);
+    }
+
+    /**
+     * 批量修改预约分钟后，所有节点整体重新加载
+     */
+    public void changedAll() {
+        publish();
+    }
+
+    /**
+     * 处理其他节点的用户变化通知
+     *
+     * @param message 版本号:手机号,手机号
+     */
+    public void onMessage(String message) {
+        int sep = message.indexOf(':');
+        long version = Long.parseLong(sep < 0 ? message : message.substring(0, sep));
+        Long[] mobiles = sep < 0 || sep == message.length() - 1 ? new Long[0]
+                : Arrays.stream(message.substring(sep + 1).split(",")).map(Long::valueOf).toArray(Long[]::new);
+        apply(version, mobiles);
+    }
+
+    /**
+     * 定时比对Redis中的用户版本，补上错过的变化通知
+     */
+    @Scheduled(fixedDelayString = "${imt.cluster.heartbeatMillis:5000}")
+    public void checkVersion() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        try {
+            long version = currentVersion();
+            if (version > current.version) {
+                logger.info("「预约用户索引」本地索引落后，版本: {} -> {}", current.version, version);
+                reload();
+            }
+        } catch (Exception e) {
+            logger.warn("「预约用户索引」检查版本失败", e);
+        }
+    }
+
+    private void publish(Long... mobiles) {
+        long version = redisCache.increment(VERSION_KEY);
+        apply(version, mobiles);
+        String joined = Arrays.stream(mobiles).map(String::valueOf).collect(Collectors.joining(","));
+        redisCache.publish(CHANNEL, version + ":" + joined);
+    }
+
+    /**
+     * 应用一次用户变化
+     * <p>
+     * 只有紧接当前版本的变化才增量更新，否则丢弃索引，下次访问时重新加载
+     */
+    private synchronized void apply(long version, Long[] mobiles) {
+        Snapshot current = snapshot;
+        if (current == null || version <= current.version) {
+            return;
+        }
+        if (mobiles.length == 0 || version != current.version + 1) {
+            snapshot = null;
+            return;
+        }
+        Map<Long, IUser> byMobile = new HashMap<>(current.byMobile);
+        for (Long mobile : mobiles) {
+            IUser user = iUserMapper.selectById(mobile);
+            if (isEligible(user)) {
+                byMobile.put(mobile, user);
+            } else {
+                byMobile.remove(mobile);
+            }
+        }
+        snapshot = new Snapshot(current.date, version, byMobile);
+    }
+
+    private long currentVersion() {
+        Long version = Convert.toLong(redisCache.getCacheObject(VERSION_KEY));
+        return version == null ? 0L : version;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || !LocalDate.now().equals(current.date)) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || !LocalDate.now().equals(current.date)) {
+                    reload();
+                    current = snapshot;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 与 {@link IUserMapper#selectReservationUser()} 的查询条件保持一致
+     */
+    private static boolean isEligible(IUser user) {
+        return user != null
+                && StringUtils.isNotEmpty(user.getLat())
+                && StringUtils.isNotEmpty(user.getLng())
+                && StringUtils.isNotEmpty(user.getItemCode());
+    }
+
+    private static final class Snapshot {
+        private final LocalDate date;
+        private final long version;
+        private final Map<Long, IUser> byMobile;
+        private final List<IUser>[] buckets;
+        private final List<IUser> all;
+
+        @SuppressWarnings("unchecked")
+        private Snapshot(LocalDate date, long version, Map<Long, IUser> byMobile) {
+            this.date = date;
+            this.version = version;
+            this.byMobile = byMobile;
+            List<IUser>[] lists = new List[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                lists[i] = new ArrayList<>();
+            }
+            Collection<IUser> users = byMobile.values();
+            for (IUser user : users) {
+                int minute = user.getMinute();
+                if (minute >= 0 && minute < BUCKETS) {
+                    lists[minute].add(user);
+                }
+            }
+            this.buckets = new List[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                this.buckets[i] = lists[i].isEmpty()
+                        ? Collections.emptyList() : Collections.unmodifiableList(lists[i]);
+            }
+            this.all = Collections.unmodifiableList(new ArrayList<>(users));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.oddfar.campus.business.cluster;
+
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.common.core.RedisCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群节点注册
+ * <p>
+ * 各节点定时把心跳时间写入 Redis 有序集合，分数在有效期内的成员即为存活节点
+ *
+ * @author oddfar
+ */
+@Component
+public class ClusterMembership {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMembership.class);
+
+    /**
+     * 节点心跳，成员为节点ID，分数为最近一次心跳的时间戳
+     */
+    private static final String NODES_KEY = "mt_cluster:nodes";
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    /**
+     * 本节点ID：进程号@主机名:随机后缀，同一主机上重启后不会与旧ID混淆
+     */
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":"
+            + UUID.randomUUID().toString().substring(0, 8);
+
+    @PostConstruct
+    public void join() {
+        if (imtProperties.getCluster().isEnabled()) {
+            heartbeat();
+            logger.info("「集群」节点加入，nodeId: {}", nodeId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${imt.cluster.heartbeatMillis:5000}")
+    public void heartbeat() {
+        if (!imtProperties.getCluster().isEnabled()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            redisCache.addCacheZSet(NODES_KEY, nodeId, now);
+            // 顺带清理已下线的节点
+            redisCache.removeCacheZSetByScore(NODES_KEY, 0, now - ttlMillis());
+        } catch (Exception e) {
+            logger.error("「集群」节点心跳失败，nodeId: {}", nodeId, e);
+        }
+    }
+
+    /**
+     * 当前存活的节点，按节点ID排序
+     */
+    public List<String> liveNodes() {
+        long now = System.currentTimeMillis();
+        Set<String> members = redisCache.getCacheZSet(NODES_KEY, now - ttlMillis(), Double.MAX_VALUE);
+        List<String> nodes = members == null ? new ArrayList<>() : new ArrayList<>(members);
+        Collections.sort(nodes);
+        return nodes;
+    }
+
+    private long ttlMillis() {
+        return TimeUnit.SECONDS.toMillis(imtProperties.getCluster().getNodeTtlSeconds());
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!imtProperties.getCluster().isEnabled()) {
+            return;
+        }
+        try {
+            redisCache.deleteCacheZSetValue(NODES_KEY, nodeId);
+            logger.info("「集群」节点退出，nodeId: {}", nodeId);
+        } catch (Exception e) {
+            logger.warn("「集群」节点退出时注销失败，nodeId: {}", nodeId, e);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
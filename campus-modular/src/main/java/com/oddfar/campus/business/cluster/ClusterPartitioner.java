@@ -0,0 +1,177 @@
+package com.oddfar.campus.business.cluster;
+
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.common.core.RedisCache;
+import com.oddfar.campus.common.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 批次分片
+ * <p>
+ * 每个批次第一次分片时，由最先到达的节点用 SETNX 固定该批次的节点视图，
+ * 所有节点按同一视图构建一致性哈希环，各自只处理归属自己的用户，批次进行中新加入的节点不参与该批次。
+ * 视图中的节点在分片时已下线（心跳超时），其用户按视图中仍存活的节点构建的哈希环重新分配；
+ * 各节点判断存活的时刻略有差异，节点恰好在此期间下线时，少量用户可能重复或遗漏。
+ * 分片之后才下线的节点，其尚未处理的用户会遗漏
+ *
+ * @author oddfar
+ */
+@Component
+public class ClusterPartitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterPartitioner.class);
+
+    private static final String VIEW_KEY = "mt_cluster:view:";
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Autowired
+    private ClusterMembership clusterMembership;
+
+    /**
+     * 最近使用的哈希环，节点视图不变时复用
+     */
+    private volatile ConsistentHashRing lastRing;
+
+    /**
+     * 因原节点下线而重新分配的任务数（全部节点，按本节点的判断）
+     */
+    private final AtomicLong reassigned = new AtomicLong();
+
+    /**
+     * 筛选本节点负责的任务
+     *
+     * @param bucket 批次标识，同一批次在各节点上必须相同，如 reservation:202310010900
+     * @param items  批次的全部任务
+     * @param keyFn  分片键，如用户手机号
+     * @return 本节点负责的任务；未启用分片时返回全部任务
+     */
+    public <T> List<T> owned(String bucket, List<T> items, Function<T, ?> keyFn) {
+        if (!imtProperties.getCluster().isEnabled() || items == null || items.isEmpty()) {
+            return items;
+        }
+        String nodeId = clusterMembership.getNodeId();
+        List<String> live;
+        List<String> view;
+        try {
+            live = liveNodes();
+            view = frozenView(bucket, live);
+        } catch (Exception e) {
+            // 无法协调时宁可重复处理，也不遗漏用户
+            logger.error("「集群」获取批次节点视图失败，处理全部任务，bucket: {}", bucket, e);
+            return items;
+        }
+
+        // 视图中仍存活的节点；视图中的节点全部下线时由当前存活的节点接管
+        Set<String> survivors = new HashSet<>(view);
+        survivors.retainAll(live);
+        if (survivors.isEmpty()) {
+            survivors.addAll(live);
+        }
+        if (!survivors.contains(nodeId)) {
+            logger.info("「集群」本节点不在批次节点视图中，跳过，bucket: {}, view: {}", bucket, view);
+            return Collections.emptyList();
+        }
+        if (view.size() == 1 && survivors.size() == 1) {
+            return items;
+        }
+
+        ConsistentHashRing ring = ring(view);
+        ConsistentHashRing fallback = survivors.size() == view.size() && survivors.containsAll(view)
+                ? null : new ConsistentHashRing(survivors, imtProperties.getCluster().getVirtualNodes());
+        List<T> owned = new ArrayList<>(items.size() / survivors.size() + 1);
+        int moved = 0;
+        int movedToMe = 0;
+        for (T item : items) {
+            String key = String.valueOf(keyFn.apply(item));
+            String owner = ring.owner(key);
+            if (fallback != null && !survivors.contains(owner)) {
+                owner = fallback.owner(key);
+                moved++;
+                if (nodeId.equals(owner)) {
+                    movedToMe++;
+                }
+            }
+            if (nodeId.equals(owner)) {
+                owned.add(item);
+            }
+        }
+        if (moved > 0) {
+            reassigned.addAndGet(moved);
+            List<String> dead = new ArrayList<>(view);
+            dead.removeAll(survivors);
+            logger.warn("「集群」视图中的节点已下线，重新分配其任务，bucket: {}, 下线节点: {}, 重新分配: {}, 本节点接管: {}",
+                    bucket, dead, moved, movedToMe);
+        }
+        logger.info("「集群」批次分片，bucket: {}, 节点数: {}, 总数: {}, 本节点: {}",
+                bucket, survivors.size(), items.size(), owned.size());
+        return owned;
+    }
+
+    /**
+     * 当前存活的节点，本节点的心跳刚好过期或尚未写入时先补一次心跳
+     */
+    private List<String> liveNodes() {
+        List<String> live = clusterMembership.liveNodes();
+        if (!live.contains(clusterMembership.getNodeId())) {
+            clusterMembership.heartbeat();
+            live = clusterMembership.liveNodes();
+        }
+        return live;
+    }
+
+    /**
+     * 批次的节点视图，第一次调用时固定为当前存活的节点
+     */
+    private List<String> frozenView(String bucket, List<String> live) {
+        String key = VIEW_KEY + bucket;
+        String candidate = String.join(",", live);
+        if (redisCache.setCacheObjectIfAbsent(key, candidate,
+                imtProperties.getCluster().getViewTtlHours(), TimeUnit.HOURS)) {
+            return live;
+        }
+        String frozen = redisCache.getCacheObject(key);
+        return StringUtils.isEmpty(frozen) ? live : Arrays.asList(frozen.split(","));
+    }
+
+    private ConsistentHashRing ring(List<String> view) {
+        ConsistentHashRing ring = lastRing;
+        if (ring == null || !ring.getNodes().equals(view)) {
+            ring = new ConsistentHashRing(view, imtProperties.getCluster().getVirtualNodes());
+            lastRing = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * 分片状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", imtProperties.getCluster().isEnabled());
+        stats.put("nodeId", clusterMembership.getNodeId());
+        stats.put("liveNodes", imtProperties.getCluster().isEnabled()
+                ? clusterMembership.liveNodes() : Collections.singletonList(clusterMembership.getNodeId()));
+        stats.put("reassigned", reassigned.get());
+        return stats;
+    }
+}
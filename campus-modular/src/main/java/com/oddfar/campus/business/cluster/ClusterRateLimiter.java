@@ -0,0 +1,220 @@
+package com.oddfar.campus.business.cluster;
+
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.business.engine.PermitLimiter;
+import com.oddfar.campus.common.core.RedisCache;
+import com.oddfar.campus.common.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全集群上游请求限流器
+ * <p>
+ * 按秒计数，所有节点共享同一个计数键；每次向 Redis 申请一批许可留在本地使用，
+ * 本地许可随 Redis 计数窗口一起失效，用完再申请，避免每个请求一次 Redis 往返。
+ * Redis 不可用时退化为本节点的匀速限流
+ *
+ * @author oddfar
+ */
+@Component
+public class ClusterRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterRateLimiter.class);
+
+    private static final String LIMIT_KEY = "mt_limiter:upstream";
+
+    /**
+     * 本秒许可用尽时，重新申请前的等待时间（毫秒）
+     */
+    private static final long RETRY_MILLIS = 50;
+
+    /**
+     * 批量申请许可
+     * <p>
+     * KEYS[1]=计数键，ARGV[1]=窗口内允许的次数，ARGV[2]=窗口时长（秒），ARGV[3]=本次申请的次数；
+     * 返回 {申请后的计数, 窗口剩余毫秒数}，不超过允许次数的部分即为获得的许可；已超限时不再累加，但计数仍计入本次申请
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> BATCH_SCRIPT = new DefaultRedisScript<>(
+            "local key = KEYS[1]\n" +
+                    "local count = tonumber(ARGV[1])\n" +
+                    "local time = tonumber(ARGV[2])\n" +
+                    "local permits = tonumber(ARGV[3])\n" +
+                    "local current = redis.call('get', key)\n" +
+                    "if current and tonumber(current) > count then\n" +
+                    "    return {tonumber(current) + permits, redis.call('pttl', key)}\n" +
+                    "end\n" +
+                    "current = redis.call('incrby', key, permits)\n" +
+                    "if tonumber(current) == permits then\n" +
+                    "    redis.call('expire', key, time)\n" +
+                    "end\n" +
+                    "return {current, redis.call('pttl', key)}", List.class);
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    private PermitLimiter fallbackLimiter;
+
+    /**
+     * 保护本地许可，不在持有时访问Redis
+     */
+    private final Object lock = new Object();
+
+    /**
+     * 本地剩余的许可数
+     */
+    private int allowance;
+
+    /**
+     * 本地许可的失效时间，即申请时Redis计数窗口的结束时间
+     */
+    private long allowanceExpireNanos;
+
+    private final AtomicLong granted = new AtomicLong();
+
+    private final AtomicLong denied = new AtomicLong();
+
+    private final AtomicLong fallback = new AtomicLong();
+
+    private final AtomicLong redisCalls = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        fallbackLimiter = new PermitLimiter(imtProperties.getLimiter().getFallbackPermitsPerSecond());
+    }
+
+    /**
+     * 获取一个许可，必要时阻塞等待
+     *
+     * @throws ServiceException 超过最长等待时间仍未获得许可
+     */
+    public void acquire() {
+        IMTProperties.Limiter config = imtProperties.getLimiter();
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+        try {
+            while (true) {
+                Boolean acquired = tryAcquire(config);
+                if (acquired == null) {
+                    // Redis不可用，退化为本地限流
+                    fallback.incrementAndGet();
+                    fallbackLimiter.acquire();
+                    granted.incrementAndGet();
+                    return;
+                }
+                if (acquired) {
+                    granted.incrementAndGet();
+                    return;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    denied.incrementAndGet();
+                    throw new ServiceException("请求i茅台接口过于频繁，请稍后重试");
+                }
+                TimeUnit.MILLISECONDS.sleep(RETRY_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            denied.incrementAndGet();
+            throw new ServiceException("等待i茅台接口限流许可被中断");
+        } finally {
+            recordWait(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return true=获得许可；false=本秒许可已用尽；null=Redis不可用
+     */
+    private Boolean tryAcquire(IMTProperties.Limiter config) {
+        synchronized (lock) {
+            if (allowance > 0 && System.nanoTime() - allowanceExpireNanos < 0) {
+                allowance--;
+                return true;
+            }
+        }
+
+        // 本地许可用尽，向Redis申请；多个线程可能同时申请，总数仍由Redis计数保证
+        int permits = Math.max(1, config.getBatchSize());
+        long current;
+        long ttlMillis;
+        long requested = System.nanoTime();
+        try {
+            redisCalls.incrementAndGet();
+            List<Object> keys = Collections.singletonList(LIMIT_KEY);
+            List<?> result = (List<?>) redisCache.redisTemplate.execute(BATCH_SCRIPT, keys,
+                    config.getPermitsPerSecond(), 1, permits);
+            if (result == null || result.size() < 2) {
+                return null;
+            }
+            current = ((Number) result.get(0)).longValue();
+            ttlMillis = ((Number) result.get(1)).longValue();
+        } catch (Exception e) {
+            logger.warn("「限流」申请全集群许可失败，使用本地限流: {}", e.getMessage());
+            return null;
+        }
+        // 计数在申请前已达上限时，本次申请的许可全部无效
+        long available = config.getPermitsPerSecond() - (current - permits);
+        int obtained = (int) Math.max(0, Math.min(permits, available));
+        if (obtained == 0) {
+            return false;
+        }
+        // 键没有过期时间（不应出现）时按一个窗口计算
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis > 0 ? ttlMillis : TimeUnit.SECONDS.toMillis(1));
+        synchronized (lock) {
+            long now = System.nanoTime();
+            // 本地剩余的许可与新申请的许可属于同一窗口时合并，否则已失效
+            int remaining = allowance > 0 && now - allowanceExpireNanos < 0 ? allowance : 0;
+            allowance = remaining + obtained - 1;
+            // 以发出申请的时刻计算，本地许可不会晚于Redis窗口失效
+            allowanceExpireNanos = requested + windowNanos;
+        }
+        return true;
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.addAndGet(nanos);
+        long max = maxWaitNanos.get();
+        while (nanos > max && !maxWaitNanos.compareAndSet(max, nanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    /**
+     * 限流统计
+     */
+    public Map<String, Object> stats() {
+        long grantedCount = granted.get();
+        long deniedCount = denied.get();
+        long total = grantedCount + deniedCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", imtProperties.getLimiter().isEnabled());
+        stats.put("permitsPerSecond", imtProperties.getLimiter().getPermitsPerSecond());
+        stats.put("granted", grantedCount);
+        stats.put("denied", deniedCount);
+        stats.put("fallback", fallback.get());
+        stats.put("redisCalls", redisCalls.get());
+        stats.put("avgWaitMillis", total == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos.get() / total));
+        stats.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        return stats;
+    }
+}
@@ -0,0 +1,63 @@
+package com.oddfar.campus.business.cluster;
+
+import com.oddfar.campus.business.utils.IMTCrypto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环
+ * <p>
+ * 每个节点在环上放置若干虚拟节点，键归属顺时针方向的第一个虚拟节点；
+ * 节点增减时只有相邻区间的键改变归属
+ *
+ * @author oddfar
+ */
+public final class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    private final List<String> nodes;
+
+    /**
+     * @param nodes        节点
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        int replicas = Math.max(1, virtualNodes);
+        for (String node : nodes) {
+            for (int i = 0; i < replicas; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+    }
+
+    /**
+     * 键所属的节点
+     *
+     * @return 节点，环为空时返回null
+     */
+    public String owner(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 取MD5的前8个字节，分布比String.hashCode均匀
+     */
+    static long hash(String key) {
+        return Long.parseUnsignedLong(IMTCrypto.md5Hex(key).substring(0, 16), 16);
+    }
+}
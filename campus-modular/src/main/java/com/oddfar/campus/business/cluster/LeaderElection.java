@@ -0,0 +1,208 @@
+package com.oddfar.campus.business.cluster;
+
+import com.oddfar.campus.business.config.IMTProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 租约的主节点选举
+ * <p>
+ * 主节点用 SET NX PX 获得租约并定时续期，宕机后租约过期由其他节点接替；
+ * 每次获得租约时自增防护令牌，持有旧令牌的节点在执行共享任务前会发现自己已被取代。
+ * 共享任务成功后按执行批次写入完成标记，主节点切换时已完成的批次不会重复执行，失败或中断的批次可以重新执行。
+ * 租约和令牌都是纯字符串，通过 StringRedisTemplate 读写，脚本参数不经过 JSON 序列化
+ *
+ * @author oddfar
+ */
+@Component
+public class LeaderElection {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderElection.class);
+
+    private static final String LEADER_KEY = "mt_cluster:leader";
+
+    private static final String TOKEN_KEY = "mt_cluster:leader:token";
+
+    private static final String JOB_KEY = "mt_cluster:job:";
+
+    /**
+     * 仍由本节点持有时续期
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then\n" +
+                    "    return redis.call('pexpire', KEYS[1], ARGV[2])\n" +
+                    "end\n" +
+                    "return 0", Long.class);
+
+    /**
+     * 仍由本节点持有时释放
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then\n" +
+                    "    return redis.call('del', KEYS[1])\n" +
+                    "end\n" +
+                    "return 0", Long.class);
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ClusterMembership clusterMembership;
+
+    /**
+     * 本节点持有租约时的防护令牌，0表示不是主节点
+     */
+    private volatile long token;
+
+    /**
+     * 本地记录的租约到期时间，续期失败时据此提前放弃主节点身份
+     */
+    private volatile long leaseExpireNanos;
+
+    /**
+     * 定时续期或竞选
+     */
+    @Scheduled(fixedDelayString = "${imt.cluster.heartbeatMillis:5000}")
+    public void tick() {
+        if (!imtProperties.getCluster().isEnabled()) {
+            return;
+        }
+        try {
+            if (token > 0) {
+                renew();
+            } else {
+                tryAcquire();
+            }
+        } catch (Exception e) {
+            logger.error("「集群」主节点租约续期或竞选失败", e);
+        }
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (isLeader()) {
+            return true;
+        }
+        long leaseMillis = imtProperties.getCluster().getLeaderLeaseMillis();
+        long start = System.nanoTime();
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(LEADER_KEY, clusterMembership.getNodeId(), leaseMillis, TimeUnit.MILLISECONDS))) {
+            return false;
+        }
+        token = stringRedisTemplate.opsForValue().increment(TOKEN_KEY);
+        leaseExpireNanos = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        logger.info("「集群」成为主节点，nodeId: {}, token: {}", clusterMembership.getNodeId(), token);
+        return true;
+    }
+
+    private synchronized void renew() {
+        long leaseMillis = imtProperties.getCluster().getLeaderLeaseMillis();
+        long start = System.nanoTime();
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, keys(),
+                clusterMembership.getNodeId(), String.valueOf(leaseMillis));
+        if (renewed != null && renewed == 1) {
+            leaseExpireNanos = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        } else {
+            logger.warn("「集群」主节点租约已失效，nodeId: {}, token: {}", clusterMembership.getNodeId(), token);
+            token = 0;
+        }
+    }
+
+    /**
+     * 本节点是否持有未过期的租约
+     */
+    public boolean isLeader() {
+        return token > 0 && System.nanoTime() - leaseExpireNanos < 0;
+    }
+
+    /**
+     * 以主节点身份执行共享任务
+     * <p>
+     * 未启用集群时直接执行；否则只有主节点、且该批次尚未成功执行过时才执行，
+     * 执行成功后才写入完成标记，任务抛出异常或节点中途宕机时该批次仍可由主节点重新执行
+     *
+     * @param job   任务名称
+     * @param runId 执行批次，如 202310010855，同一批次在全集群只执行一次
+     * @param task  任务
+     * @return 是否由本节点执行
+     */
+    public boolean runAsLeader(String job, String runId, Runnable task) {
+        if (!imtProperties.getCluster().isEnabled()) {
+            task.run();
+            return true;
+        }
+        if (!isLeader() && !tryAcquire()) {
+            logger.debug("「集群」非主节点，跳过共享任务: {}", job);
+            return false;
+        }
+        long fencingToken = token;
+        // 完成标记，旧主节点恢复后不会重复执行已由新主节点完成的批次
+        String jobKey = JOB_KEY + job + ":" + runId;
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(jobKey))) {
+            logger.info("「集群」共享任务已执行过，跳过: {}:{}", job, runId);
+            return false;
+        }
+        if (!isCurrent(fencingToken)) {
+            logger.warn("「集群」防护令牌已过期，放弃执行共享任务: {}:{}, token: {}", job, runId, fencingToken);
+            return false;
+        }
+        logger.info("「集群」主节点执行共享任务: {}:{}, token: {}", job, runId, fencingToken);
+        task.run();
+        stringRedisTemplate.opsForValue().set(jobKey, String.valueOf(fencingToken),
+                imtProperties.getCluster().getViewTtlHours(), TimeUnit.HOURS);
+        return true;
+    }
+
+    /**
+     * 令牌是否仍是最新的，租约被其他节点接替后令牌已自增
+     */
+    private boolean isCurrent(long fencingToken) {
+        String latest = stringRedisTemplate.opsForValue().get(TOKEN_KEY);
+        return latest != null && Long.parseLong(latest) == fencingToken && isLeader();
+    }
+
+    private static List<String> keys() {
+        return Collections.singletonList(LEADER_KEY);
+    }
+
+    @PreDestroy
+    public void release() {
+        if (!imtProperties.getCluster().isEnabled() || token == 0) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, keys(), clusterMembership.getNodeId());
+            logger.info("「集群」释放主节点租约，nodeId: {}", clusterMembership.getNodeId());
+        } catch (Exception e) {
+            logger.warn("「集群」释放主节点租约失败", e);
+        } finally {
+            token = 0;
+        }
+    }
+
+    /**
+     * 选举状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leader", isLeader());
+        stats.put("token", token);
+        stats.put("currentLeader", imtProperties.getCluster().isEnabled()
+                ? stringRedisTemplate.opsForValue().get(LEADER_KEY) : clusterMembership.getNodeId());
+        return stats;
+    }
+}
@@ -0,0 +1,260 @@
+package com.oddfar.campus.business.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * i茅台业务配置
+ *
+ * @author oddfar
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "imt")
+public class IMTProperties {
+
+    /**
+     * 批量预约配置
+     */
+    private Reservation reservation = new Reservation();
+
+    /**
+     * 上游HTTP连接池配置
+     */
+    private Http http = new Http();
+
+    /**
+     * 批次开始前的连接预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 多节点部署配置
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 全集群上游请求限流配置
+     */
+    private Limiter limiter = new Limiter();
+
+    /**
+     * 持久化任务队列配置
+     */
+    private Queue queue = new Queue();
+
+    @Data
+    public static class Reservation {
+
+        /**
+         * 同时进行预约的用户数
+         */
+        private int concurrency = 5;
+
+        /**
+         * 每秒最多发起的预约数，小于等于0表示不限速
+         */
+        private double permitsPerSecond = 2;
+
+        /**
+         * 每个分钟批次的执行窗口（秒），超出窗口仍未开始的用户本批次跳过
+         */
+        private int windowSeconds = 55;
+
+        /**
+         * 是否启用时间轮，将分钟批次内的用户按手机号分散到各自的秒级时刻发起
+         */
+        private boolean wheelEnabled = false;
+
+        /**
+         * 时间轮分散的时间范围（秒），不超过执行窗口
+         */
+        private int spreadSeconds = 50;
+
+        /**
+         * 时间轮刻度（毫秒）
+         */
+        private long wheelTickMillis = 10;
+
+        /**
+         * 查询申购结果时同时查询的用户数
+         */
+        private int resultsConcurrency = 5;
+    }
+
+    @Data
+    public static class Http {
+
+        /**
+         * 建立连接超时时间（毫秒）
+         */
+        private int connectTimeout = 3000;
+
+        /**
+         * 读取响应超时时间（毫秒）
+         */
+        private int socketTimeout = 10000;
+
+        /**
+         * 从连接池获取连接的超时时间（毫秒）
+         */
+        private int connectionRequestTimeout = 2000;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maxTotal = 100;
+
+        /**
+         * 单个域名最大连接数
+         */
+        private int maxPerRoute = 50;
+
+        /**
+         * 空闲连接保活时间（秒）
+         */
+        private int keepAliveSeconds = 60;
+    }
+
+    @Data
+    public static class Warmup {
+
+        /**
+         * 是否在每个分钟批次开始前预热
+         */
+        private boolean enabled = true;
+
+        /**
+         * 需要预热的上游域名
+         */
+        private List<String> hosts = Arrays.asList(
+                "app.moutai519.com.cn", "h5.moutai519.com.cn", "static.moutai519.com.cn");
+
+        /**
+         * 单个域名最多预热的连接数
+         */
+        private int maxConnections = 20;
+
+        /**
+         * DNS解析结果缓存时间（秒）
+         */
+        private int dnsTtlSeconds = 300;
+
+        /**
+         * 刷新数据后是否预加载各省门店库存
+         */
+        private boolean inventoryEnabled = true;
+
+        /**
+         * 预加载门店库存时同时请求的省份商品数
+         */
+        private int inventoryConcurrency = 4;
+
+        /**
+         * 预加载门店库存的执行窗口（秒）
+         */
+        private int inventoryWindowSeconds = 120;
+    }
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否启用多节点分片，启用后各节点按手机号分担同一批次的用户
+         */
+        private boolean enabled = false;
+
+        /**
+         * 节点心跳间隔（毫秒）
+         */
+        private long heartbeatMillis = 5000;
+
+        /**
+         * 超过该时间（秒）没有心跳的节点视为下线
+         */
+        private int nodeTtlSeconds = 15;
+
+        /**
+         * 一致性哈希环上每个节点的虚拟节点数
+         */
+        private int virtualNodes = 160;
+
+        /**
+         * 批次节点视图的保留时间（小时）
+         */
+        private int viewTtlHours = 24;
+
+        /**
+         * 主节点租约时长（毫秒），主节点宕机后最迟经过该时间由其他节点接替
+         */
+        private long leaderLeaseMillis = 15000;
+    }
+
+    @Data
+    public static class Limiter {
+
+        /**
+         * 是否启用全集群上游请求限流
+         */
+        private boolean enabled = false;
+
+        /**
+         * 全集群每秒最多发往i茅台的请求数
+         */
+        private int permitsPerSecond = 20;
+
+        /**
+         * 每次从Redis预取的许可数，减少每个请求一次Redis往返
+         */
+        private int batchSize = 5;
+
+        /**
+         * 获取许可最长等待时间（毫秒），超时则拒绝请求
+         */
+        private long maxWaitMillis = 3000;
+
+        /**
+         * Redis不可用时本节点每秒最多发出的请求数
+         */
+        private double fallbackPermitsPerSecond = 5;
+    }
+
+    @Data
+    public static class Queue {
+
+        /**
+         * 是否通过Redis Streams队列执行批量预约和旅行奖励，重启或扩容后从中断处继续
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每个节点同时执行的任务数
+         */
+        private int concurrency = 5;
+
+        /**
+         * 每个节点每秒最多开始的任务数，0表示不限速
+         */
+        private double permitsPerSecond = 2;
+
+        /**
+         * 未确认的任务空闲超过该时间（秒）后由其他消费者认领
+         */
+        private int claimIdleSeconds = 60;
+
+        /**
+         * 单个任务最多投递次数，超过后放弃
+         */
+        private int maxDeliveries = 3;
+
+        /**
+         * Stream保留的最大消息数
+         */
+        private long maxLen = 100000;
+    }
+
+}
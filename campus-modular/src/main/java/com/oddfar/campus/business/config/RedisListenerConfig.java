@@ -0,0 +1,65 @@
+package com.oddfar.campus.business.config;
+
+import cn.hutool.core.convert.Convert;
+import com.oddfar.campus.business.cache.ShopSnapshot;
+import com.oddfar.campus.business.cache.UserMinuteIndex;
+import com.oddfar.campus.business.service.IMTService;
+import com.oddfar.campus.business.service.IShopService;
+import com.oddfar.campus.common.core.RedisCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis 消息订阅配置
+ *
+ * @author oddfar
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisListenerConfig.class);
+
+    @Bean
+    public RedisMessageListenerContainer imtListenerContainer(RedisConnectionFactory connectionFactory,
+                                                              RedisCache redisCache, IShopService iShopService,
+                                                              IMTService imtService, UserMinuteIndex userMinuteIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // 其他节点刷新门店后，重新加载本地门店快照
+        container.addMessageListener((message, pattern) -> {
+            try {
+                Long version = Convert.toLong(redisCache.redisTemplate.getValueSerializer().deserialize(message.getBody()));
+                if (version != null) {
+                    iShopService.reloadShopSnapshot(version);
+                }
+            } catch (Exception e) {
+                logger.error("处理门店刷新通知失败", e);
+            }
+        }, new ChannelTopic(ShopSnapshot.CHANNEL));
+        // 其他节点刷新版本号、场次后，丢弃本地的请求头模板和预取请求
+        container.addMessageListener((message, pattern) -> {
+            try {
+                imtService.reloadMTVersion();
+            } catch (Exception e) {
+                logger.error("处理刷新通知失败", e);
+            }
+        }, new ChannelTopic(IMTService.REFRESH_CHANNEL));
+        // 其他节点增删改用户后，更新本地预约用户索引
+        container.addMessageListener((message, pattern) -> {
+            try {
+                String body = Convert.toStr(redisCache.redisTemplate.getValueSerializer().deserialize(message.getBody()));
+                if (body != null) {
+                    userMinuteIndex.onMessage(body);
+                }
+            } catch (Exception e) {
+                logger.error("处理用户变化通知失败", e);
+            }
+        }, new ChannelTopic(UserMinuteIndex.CHANNEL));
+        return container;
+    }
+}
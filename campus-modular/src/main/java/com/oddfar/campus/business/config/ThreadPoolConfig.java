@@ -40,4 +40,102 @@ public class ThreadPoolConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * i茅台单用户多商品并行预约线程池
+     * <p>
+     * 由 imtExecutor 中的任务提交并等待，因此不设队列：线程用尽时由调用者自己执行，避免互相等待
+     */
+    @Bean("imtItemExecutor")
+    public Executor imtItemExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(5);
+        executor.setMaxPoolSize(20);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("imt-item-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * i茅台旅行奖励调用链线程池
+     * <p>
+     * 同一用户调用链中相互独立的接口并行执行，由批量任务线程等待结果，因此同样不设队列
+     */
+    @Bean("imtTravelExecutor")
+    public Executor imtTravelExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(5);
+        executor.setMaxPoolSize(20);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("imt-travel-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 缓存提前刷新线程池
+     * <p>
+     * 刷新由预约线程触发，线程和队列用尽时直接拒绝，由调用方放弃本次刷新，不能在预约线程中执行
+     */
+    @Bean("imtRefreshExecutor")
+    public Executor imtRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("imt-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 预约时间轮的到期任务线程池
+     * <p>
+     * 到期任务只是把用户交给批次的分发线程，不能使用调用者运行策略，否则会阻塞时间轮推进
+     */
+    @Bean("imtWheelExecutor")
+    public Executor imtWheelExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("imt-wheel-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 延迟任务执行线程池
+     * <p>
+     * 由时间轮线程提交，不能使用调用者运行策略，否则会阻塞时间轮推进；
+     * 队列已满时被拒绝的任务由时间轮在下一个刻度重新提交
+     */
+    @Bean("imtDelayExecutor")
+    public Executor imtDelayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("imt-delay-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
 }
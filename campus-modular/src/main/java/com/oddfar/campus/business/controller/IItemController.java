@@ -1,7 +1,6 @@
 package com.oddfar.campus.business.controller;
 
 import com.oddfar.campus.business.entity.IItem;
-import com.oddfar.campus.business.mapper.IItemMapper;
 import com.oddfar.campus.business.service.IShopService;
 import com.oddfar.campus.common.annotation.ApiResource;
 import com.oddfar.campus.common.domain.R;
@@ -24,8 +23,6 @@ import java.util.List;
 @ApiResource(name = "I茅台预约商品列Controller")
 public class IItemController {
 
-    @Autowired
-    private IItemMapper iItemMapper;
     @Autowired
     private IShopService iShopService;
 
@@ -34,7 +31,7 @@ public class IItemController {
      */
     @GetMapping(value = "/list", name = "查询I茅台预约商品列列表")
     public R list() {
-        List<IItem> iItems = iItemMapper.selectList();
+        List<IItem> iItems = iShopService.selectItemList();
 
         return R.ok(iItems);
     }
@@ -0,0 +1,111 @@
+package com.oddfar.campus.business.controller;
+
+import com.oddfar.campus.business.cluster.ClusterPartitioner;
+import com.oddfar.campus.business.cluster.ClusterRateLimiter;
+import com.oddfar.campus.business.cluster.LeaderElection;
+import com.oddfar.campus.business.engine.DelayedTaskScheduler;
+import com.oddfar.campus.business.engine.ReservationEngine;
+import com.oddfar.campus.business.http.IMTHttpClient;
+import com.oddfar.campus.business.queue.WorkQueue;
+import com.oddfar.campus.common.annotation.ApiResource;
+import com.oddfar.campus.common.domain.R;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * i茅台运行监控Controller
+ *
+ * @author oddfar
+ */
+@RestController
+@RequestMapping("/imt/monitor")
+@ApiResource(name = "i茅台运行监控Controller")
+public class IMTMonitorController {
+
+    @Autowired
+    private IMTHttpClient imtHttpClient;
+
+    @Autowired
+    private ReservationEngine reservationEngine;
+
+    @Autowired
+    private DelayedTaskScheduler delayedTaskScheduler;
+
+    @Autowired
+    private ClusterPartitioner clusterPartitioner;
+
+    @Autowired
+    private ClusterRateLimiter clusterRateLimiter;
+
+    @Autowired
+    private LeaderElection leaderElection;
+
+    @Autowired
+    private WorkQueue workQueue;
+
+    /**
+     * 上游HTTP连接池统计
+     */
+    @GetMapping(value = "/http", name = "上游HTTP连接池统计")
+    @PreAuthorize("@ss.resourceAuth()")
+    public R http() {
+        return R.ok().put(imtHttpClient.stats());
+    }
+
+    /**
+     * 预约时间轮统计
+     */
+    @GetMapping(value = "/wheel", name = "预约时间轮统计")
+    @PreAuthorize("@ss.resourceAuth()")
+    public R wheel() {
+        Map<String, Object> stats = reservationEngine.wheelStats();
+        if (stats == null) {
+            return R.error("未启用预约时间轮");
+        }
+        return R.ok().put(stats);
+    }
+
+    /**
+     * 延迟任务统计
+     */
+    @GetMapping(value = "/delay", name = "延迟任务统计")
+    @PreAuthorize("@ss.resourceAuth()")
+    public R delay() {
+        return R.ok().put(delayedTaskScheduler.stats());
+    }
+
+    /**
+     * 集群节点
+     */
+    @GetMapping(value = "/cluster", name = "集群节点")
+    @PreAuthorize("@ss.resourceAuth()")
+    public R cluster() {
+        Map<String, Object> stats = clusterPartitioner.stats();
+        stats.put("election", leaderElection.stats());
+        return R.ok().put(stats);
+    }
+
+    /**
+     * 全集群上游请求限流统计
+     */
+    @GetMapping(value = "/limiter", name = "上游请求限流统计")
+    @PreAuthorize("@ss.resourceAuth()")
+    public R limiter() {
+        return R.ok().put(clusterRateLimiter.stats());
+    }
+
+    /**
+     * 任务队列统计
+     */
+    @GetMapping(value = "/queue", name = "任务队列统计")
+    @PreAuthorize("@ss.resourceAuth()")
+    public R queue() {
+        return R.ok().put(workQueue.stats());
+    }
+
+}
@@ -172,6 +172,6 @@ public class IUserController {
     @PreAuthorize("@ss.resourceAuth()")
     @DeleteMapping(value = "/{mobiles}", name = "删除I茅台用户")
     public R remove(@PathVariable Long[] mobiles) {
-        return R.ok(iUserMapper.deleteIUser(mobiles));
+        return R.ok(iUserService.deleteIUser(mobiles));
     }
 }
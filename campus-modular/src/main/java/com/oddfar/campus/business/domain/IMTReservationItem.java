@@ -0,0 +1,28 @@
+package com.oddfar.campus.business.domain;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * i茅台申购记录
+ */
+@Data
+public class IMTReservationItem {
+
+    private String itemId;
+
+    private String itemName;
+
+    private String shopId;
+
+    private Long sessionId;
+
+    /**
+     * 申购状态，2为申购成功
+     */
+    private Integer status;
+
+    private Date reservationTime;
+
+}
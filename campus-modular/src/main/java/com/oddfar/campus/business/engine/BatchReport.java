@@ -0,0 +1,105 @@
+package com.oddfar.campus.business.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量任务执行报告
+ *
+ * @author oddfar
+ */
+public class BatchReport {
+
+    private final String name;
+
+    private final int total;
+
+    private final AtomicInteger success = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * 每个任务的耗时（毫秒），key为任务标识（如手机号）
+     */
+    private final Map<Object, Long> latencies = new ConcurrentHashMap<>();
+
+    private volatile long elapsedMillis;
+
+    public BatchReport(String name, int total) {
+        this.name = name;
+        this.total = total;
+    }
+
+    void success(Object key, long latencyMillis) {
+        success.incrementAndGet();
+        latencies.put(key, latencyMillis);
+    }
+
+    void failure(Object key, long latencyMillis) {
+        failed.incrementAndGet();
+        latencies.put(key, latencyMillis);
+    }
+
+    void skip() {
+        skipped.incrementAndGet();
+    }
+
+    void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSuccess() {
+        return success.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Map<Object, Long> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * 耗时百分位（毫秒）
+     *
+     * @param percent 百分位，例如 50、99
+     */
+    public long percentile(int percent) {
+        List<Long> values = new ArrayList<>(latencies.values());
+        if (values.isEmpty()) {
+            return 0L;
+        }
+        Collections.sort(values);
+        int index = (int) Math.ceil(percent / 100.0 * values.size()) - 1;
+        return values.get(Math.max(0, Math.min(index, values.size() - 1)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s 总数: %d, 成功: %d, 失败: %d, 跳过: %d, 总耗时: %dms, p50: %dms, p99: %dms",
+                name, total, getSuccess(), getFailed(), getSkipped(), elapsedMillis, percentile(50), percentile(99));
+    }
+}
@@ -0,0 +1,233 @@
+package com.oddfar.campus.business.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 有界并发 + 限速的批量执行器
+ * <p>
+ * 同时执行的任务数不超过 concurrency，任务的发起速率受 {@link PermitLimiter} 控制，
+ * 超过执行窗口仍未开始的任务直接跳过，避免挤占下一个批次。
+ * 任务抛出异常或返回 false 时计为失败
+ *
+ * @author oddfar
+ */
+public class BatchRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    private final String name;
+
+    private final Executor executor;
+
+    private final int concurrency;
+
+    private final PermitLimiter limiter;
+
+    public BatchRunner(String name, Executor executor, int concurrency, PermitLimiter limiter) {
+        this.name = name;
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+        this.limiter = limiter;
+    }
+
+    /**
+     * 执行批量任务，阻塞直到所有已开始的任务结束
+     *
+     * @param items        待执行的任务
+     * @param keyFn        任务标识，用于记录耗时
+     * @param action       任务逻辑
+     * @param windowMillis 执行窗口（毫秒），小于等于0表示不限制
+     * @return 执行报告
+     */
+    public <T> BatchReport run(List<T> items, Function<T, ?> keyFn, Consumer<T> action, long windowMillis) {
+        return runChecked(items, keyFn, item -> {
+            action.accept(item);
+            return true;
+        }, windowMillis);
+    }
+
+    /**
+     * 执行批量任务，阻塞直到所有已开始的任务结束
+     *
+     * @param items        待执行的任务
+     * @param keyFn        任务标识，用于记录耗时
+     * @param action       任务逻辑，返回是否成功
+     * @param windowMillis 执行窗口（毫秒），小于等于0表示不限制
+     * @return 执行报告
+     */
+    public <T> BatchReport runChecked(List<T> items, Function<T, ?> keyFn, Predicate<T> action, long windowMillis) {
+        BatchReport report = new BatchReport(name, items.size());
+        Semaphore slots = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        long deadline = windowMillis > 0 ? start + TimeUnit.MILLISECONDS.toNanos(windowMillis) : Long.MAX_VALUE;
+
+        int index = 0;
+        try {
+            for (; index < items.size(); index++) {
+                T item = items.get(index);
+                Object key = keyFn.apply(item);
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !slots.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                if (limiter != null) {
+                    limiter.acquire();
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    slots.release();
+                    break;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            execute(report, key, item, action);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // 线程池已关闭等情况，任务未能提交
+                    slots.release();
+                    report.failure(key, 0L);
+                    logger.error("「{}」{} 提交失败", name, key, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("「{}」批量执行被中断", name, e);
+        }
+
+        for (int i = index; i < items.size(); i++) {
+            report.skip();
+        }
+        if (index < items.size()) {
+            logger.warn("「{}」超出执行窗口，跳过 {} 个任务", name, items.size() - index);
+        }
+
+        // 等待已开始的任务全部结束
+        slots.acquireUninterruptibly(concurrency);
+        report.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    /**
+     * 按各任务自己的延迟，通过时间轮分散发起，阻塞直到所有已开始的任务结束
+     * <p>
+     * 时间轮到期时只把任务交给当前线程，由当前线程按 concurrency 和限速器取得许可后再提交到线程池，
+     * 时间轮线程和线程池线程都不会因限速而等待
+     *
+     * @param items        待执行的任务
+     * @param keyFn        任务标识，用于记录耗时
+     * @param delayFn      任务相对当前时间的延迟（毫秒）
+     * @param action       任务逻辑，返回是否成功
+     * @param wheel        时间轮
+     * @param windowMillis 执行窗口（毫秒），到期时仍未开始的任务跳过
+     * @return 执行报告
+     */
+    public <T> BatchReport runScheduled(List<T> items, Function<T, ?> keyFn, ToLongFunction<T> delayFn,
+                                        Predicate<T> action, HashedTimingWheel wheel, long windowMillis) {
+        BatchReport report = new BatchReport(name, items.size());
+        Semaphore slots = new Semaphore(concurrency);
+        BlockingQueue<T> due = new LinkedBlockingQueue<>();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+
+        int waiting = 0;
+        for (T item : items) {
+            try {
+                wheel.schedule(() -> due.add(item), delayFn.applyAsLong(item), TimeUnit.MILLISECONDS);
+                waiting++;
+            } catch (RuntimeException e) {
+                report.failure(keyFn.apply(item), 0L);
+                logger.error("「{}」{} 提交失败", name, keyFn.apply(item), e);
+            }
+        }
+
+        try {
+            while (waiting > 0) {
+                long remaining = deadline - System.nanoTime();
+                T item = remaining > 0 ? due.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (item == null) {
+                    break;
+                }
+                Object key = keyFn.apply(item);
+                remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !slots.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                if (limiter != null) {
+                    limiter.acquire();
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    slots.release();
+                    break;
+                }
+                waiting--;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            execute(report, key, item, action);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    slots.release();
+                    report.failure(key, 0L);
+                    logger.error("「{}」{} 提交失败", name, key, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("「{}」批量执行被中断", name, e);
+        }
+
+        // 窗口结束时仍未到期或未取得许可的任务跳过，之后到期的任务不再处理
+        for (int i = 0; i < waiting; i++) {
+            report.skip();
+        }
+        if (waiting > 0) {
+            logger.warn("「{}」超出执行窗口，跳过 {} 个任务", name, waiting);
+        }
+
+        // 等待已开始的任务全部结束
+        slots.acquireUninterruptibly(concurrency);
+        report.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    private <T> void execute(BatchReport report, Object key, T item, Predicate<T> action) {
+        long begin = System.nanoTime();
+        try {
+            boolean success = action.test(item);
+            long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            if (success) {
+                report.success(key, cost);
+                logger.info("「{}」{} 完成，耗时: {}ms", name, key, cost);
+            } else {
+                report.failure(key, cost);
+                logger.warn("「{}」{} 失败，耗时: {}ms", name, key, cost);
+            }
+        } catch (Exception e) {
+            long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            report.failure(key, cost);
+            logger.error("「{}」{} 失败，耗时: {}ms", name, key, cost, e);
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+}
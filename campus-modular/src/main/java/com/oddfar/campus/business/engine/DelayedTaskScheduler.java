@@ -0,0 +1,75 @@
+package com.oddfar.campus.business.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟任务调度器
+ * <p>
+ * 预约后领取耐力值等延迟执行的后续任务，等待期间只占用时间轮中的一个槽位，不占用线程；
+ * 到期后在独立的小线程池中执行，不影响预约线程池
+ *
+ * @author oddfar
+ */
+@Component
+public class DelayedTaskScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DelayedTaskScheduler.class);
+
+    /**
+     * 延迟任务只需秒级精度
+     */
+    private static final long TICK_MILLIS = 100;
+
+    private static final int TICKS_PER_WHEEL = 512;
+
+    @Autowired
+    @Qualifier("imtDelayExecutor")
+    private Executor imtDelayExecutor;
+
+    private HashedTimingWheel wheel;
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel("imt-delay-wheel", TICK_MILLIS, TICKS_PER_WHEEL, imtDelayExecutor);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        wheel.stop();
+    }
+
+    /**
+     * 延迟执行任务
+     *
+     * @param name  任务名称，用于日志
+     * @param task  任务
+     * @param delay 延迟时间
+     * @param unit  时间单位
+     */
+    public void schedule(String name, Runnable task, long delay, TimeUnit unit) {
+        wheel.schedule(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("「延迟任务执行失败」{}", name, e);
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * 延迟任务统计
+     */
+    public Map<String, Object> stats() {
+        return wheel.stats();
+    }
+}
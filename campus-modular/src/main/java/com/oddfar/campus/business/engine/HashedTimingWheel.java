@@ -0,0 +1,277 @@
+package com.oddfar.campus.business.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 单个工作线程按固定刻度推进，到期任务交给 executor 执行，工作线程本身不执行任务。
+ * executor 拒绝的任务留在时间轮中，下一个刻度重新提交，不会丢失。
+ * 延迟超过一圈的任务记录剩余圈数，每经过一次槽位减一。
+ * 同时统计刻度推进和任务触发相对计划时间的延迟，用于确认调度精度
+ *
+ * @author oddfar
+ */
+public class HashedTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /**
+     * 延迟分布的上界（毫秒），最后一档为超过最大上界
+     */
+    private static final long[] LATENESS_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100};
+
+    private final String name;
+
+    private final long tickNanos;
+
+    private final int mask;
+
+    private final ArrayDeque<Timeout>[] slots;
+
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private final Executor executor;
+
+    private final Thread worker;
+
+    private final long startNanos;
+
+    private volatile boolean running = true;
+
+    private final LongAdder scheduled = new LongAdder();
+
+    private final LongAdder fired = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder taskLatenessNanos = new LongAdder();
+
+    private final AtomicLong maxTaskLatenessNanos = new AtomicLong();
+
+    private final AtomicLongArray taskLatenessHistogram = new AtomicLongArray(LATENESS_BOUNDS_MILLIS.length + 1);
+
+    private final LongAdder ticks = new LongAdder();
+
+    private final LongAdder tickLatenessNanos = new LongAdder();
+
+    private final AtomicLong maxTickLatenessNanos = new AtomicLong();
+
+    /**
+     * @param name          名称，用于线程名和日志
+     * @param tickMillis    刻度（毫秒）
+     * @param ticksPerWheel 每圈槽位数，向上取整为2的幂
+     * @param executor      执行到期任务的线程池
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, long tickMillis, int ticksPerWheel, Executor executor) {
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.mask = size - 1;
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::work, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 延迟执行任务
+     *
+     * @param task  任务
+     * @param delay 延迟时间，小于等于0表示下一个刻度执行
+     * @param unit  时间单位
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException(name + " 已停止");
+        }
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+        scheduled.increment();
+        pending.add(new Timeout(task, deadline));
+    }
+
+    /**
+     * 停止时间轮，未到期的任务不再执行
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void work() {
+        long tick = 0;
+        while (running) {
+            long target = tickNanos * (tick + 1);
+            long now = waitUntil(target);
+            if (now < 0) {
+                break;
+            }
+            long lateness = now - target;
+            ticks.increment();
+            tickLatenessNanos.add(lateness);
+            updateMax(maxTickLatenessNanos, lateness);
+
+            transferPending(tick);
+            expire(slots[(int) (tick & mask)], now);
+            tick++;
+        }
+        logger.info("「{}」已停止", name);
+    }
+
+    /**
+     * 等待到达相对启动时间的 target，返回到达时的相对时间；停止时返回-1
+     */
+    private long waitUntil(long target) {
+        while (true) {
+            long now = System.nanoTime() - startNanos;
+            long sleepNanos = target - now;
+            if (sleepNanos <= 0) {
+                return now;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / slots.length;
+            // 已经过期的任务放入当前槽位，本刻度立即执行
+            long targetTick = Math.max(calculated, tick);
+            slots[(int) (targetTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> slot, long now) {
+        Iterator<Timeout> it = slot.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                continue;
+            }
+            it.remove();
+            fire(timeout, now);
+        }
+    }
+
+    private void fire(Timeout timeout, long now) {
+        try {
+            executor.execute(timeout.task);
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，保留原到期时间放回待转移队列，下一个刻度重新提交
+            rejected.increment();
+            pending.add(timeout);
+            logger.debug("「{}」线程池已满，任务延后一个刻度提交", name);
+            return;
+        }
+        long lateness = Math.max(0, now - timeout.deadline);
+        fired.increment();
+        taskLatenessNanos.add(lateness);
+        updateMax(maxTaskLatenessNanos, lateness);
+        taskLatenessHistogram.incrementAndGet(histogramIndex(TimeUnit.NANOSECONDS.toMillis(lateness)));
+    }
+
+    private static int histogramIndex(long latenessMillis) {
+        for (int i = 0; i < LATENESS_BOUNDS_MILLIS.length; i++) {
+            if (latenessMillis < LATENESS_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return LATENESS_BOUNDS_MILLIS.length;
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // 重试
+        }
+    }
+
+    /**
+     * 时间轮统计
+     *
+     * @return 刻度、待执行任务数、被拒绝后重新提交的次数、刻度推进延迟、任务触发延迟及其分布
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("tickMillis", TimeUnit.NANOSECONDS.toMillis(tickNanos));
+        stats.put("wheelSize", slots.length);
+        stats.put("running", running);
+
+        long firedCount = fired.sum();
+        stats.put("scheduled", scheduled.sum());
+        stats.put("fired", firedCount);
+        stats.put("rejected", rejected.sum());
+        stats.put("pending", scheduled.sum() - firedCount);
+
+        long tickCount = ticks.sum();
+        stats.put("ticks", tickCount);
+        stats.put("tickLatenessAvgMillis", avgMillis(tickLatenessNanos.sum(), tickCount));
+        stats.put("tickLatenessMaxMillis", toMillis(maxTickLatenessNanos.get()));
+
+        stats.put("taskLatenessAvgMillis", avgMillis(taskLatenessNanos.sum(), firedCount));
+        stats.put("taskLatenessMaxMillis", toMillis(maxTaskLatenessNanos.get()));
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < LATENESS_BOUNDS_MILLIS.length; i++) {
+            histogram.put("<" + LATENESS_BOUNDS_MILLIS[i] + "ms", taskLatenessHistogram.get(i));
+        }
+        histogram.put(">=" + LATENESS_BOUNDS_MILLIS[LATENESS_BOUNDS_MILLIS.length - 1] + "ms",
+                taskLatenessHistogram.get(LATENESS_BOUNDS_MILLIS.length));
+        stats.put("taskLateness", histogram);
+        return stats;
+    }
+
+    private static double avgMillis(long totalNanos, long count) {
+        return count == 0 ? 0 : toMillis(totalNanos / count);
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static final class Timeout {
+        private final Runnable task;
+        /**
+         * 相对时间轮启动时间的到期时间（纳秒）
+         */
+        private final long deadline;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
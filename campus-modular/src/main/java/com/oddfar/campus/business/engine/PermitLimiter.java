@@ -0,0 +1,58 @@
+package com.oddfar.campus.business.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地匀速限流器
+ * <p>
+ * 按固定间隔发放许可，不允许突发，用于控制单节点向i茅台发起请求的速率
+ *
+ * @author oddfar
+ */
+public class PermitLimiter {
+
+    /**
+     * 两次许可之间的间隔（纳秒），0表示不限速
+     */
+    private final long intervalNanos;
+
+    /**
+     * 下一个许可可用的时间点
+     */
+    private long nextFreeNanos;
+
+    /**
+     * @param permitsPerSecond 每秒许可数，小于等于0表示不限速
+     */
+    public PermitLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0L;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取一个许可，必要时阻塞等待
+     *
+     * @return 等待的纳秒数
+     */
+    public long acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return 0L;
+        }
+        long now;
+        long waitUntil;
+        synchronized (this) {
+            now = System.nanoTime();
+            waitUntil = Math.max(nextFreeNanos, now);
+            nextFreeNanos = waitUntil + intervalNanos;
+        }
+        long waitNanos = waitUntil - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    public double getPermitsPerSecond() {
+        return intervalNanos == 0 ? 0 : (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+    }
+}
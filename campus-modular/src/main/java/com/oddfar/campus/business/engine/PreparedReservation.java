@@ -0,0 +1,55 @@
+package com.oddfar.campus.business.engine;
+
+import com.oddfar.campus.business.entity.IUser;
+import com.oddfar.campus.business.http.HeaderTemplate;
+
+/**
+ * 预先构建好的预约请求
+ * <p>
+ * 门店、加密参数和请求头均已确定，到点后只需发送
+ *
+ * @author oddfar
+ */
+public class PreparedReservation {
+
+    private final IUser user;
+
+    private final String itemId;
+
+    private final String shopId;
+
+    /**
+     * 请求体JSON（已包含加密的actParam）
+     */
+    private final String body;
+
+    private final HeaderTemplate headers;
+
+    public PreparedReservation(IUser user, String itemId, String shopId, String body, HeaderTemplate headers) {
+        this.user = user;
+        this.itemId = itemId;
+        this.shopId = shopId;
+        this.body = body;
+        this.headers = headers;
+    }
+
+    public IUser getUser() {
+        return user;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public String getShopId() {
+        return shopId;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public HeaderTemplate getHeaders() {
+        return headers;
+    }
+}
@@ -0,0 +1,113 @@
+package com.oddfar.campus.business.engine;
+
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.business.entity.IUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 预约执行引擎
+ * <p>
+ * 在分钟批次的执行窗口内，以有界并发和全局限速执行该批次所有用户的预约
+ *
+ * @author oddfar
+ */
+@Component
+public class ReservationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationEngine.class);
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    @Qualifier("imtExecutor")
+    private Executor imtExecutor;
+
+    @Autowired
+    @Qualifier("imtWheelExecutor")
+    private Executor imtWheelExecutor;
+
+    private BatchRunner runner;
+
+    /**
+     * 秒级分散调度的时间轮，未启用时为空
+     */
+    private HashedTimingWheel wheel;
+
+    @PostConstruct
+    public void init() {
+        IMTProperties.Reservation config = imtProperties.getReservation();
+        // 限速器在各批次间共享，保证全局速率不超过配置
+        PermitLimiter limiter = new PermitLimiter(config.getPermitsPerSecond());
+        this.runner = new BatchRunner("批量预约", imtExecutor, config.getConcurrency(), limiter);
+        if (config.isWheelEnabled()) {
+            this.wheel = new HashedTimingWheel("imt-reservation-wheel", config.getWheelTickMillis(), 512, imtWheelExecutor);
+        }
+        logger.info("预约引擎初始化完成，并发数: {}, 每秒请求数: {}, 执行窗口: {}s, 时间轮: {}",
+                config.getConcurrency(), config.getPermitsPerSecond(), config.getWindowSeconds(),
+                config.isWheelEnabled() ? "启用，分散" + config.getSpreadSeconds() + "s" : "未启用");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    /**
+     * 执行一个分钟批次的预约
+     *
+     * @param minute 批次分钟
+     * @param users  该批次的用户
+     * @param action 单个用户的预约逻辑，返回是否全部商品预约成功
+     * @return 执行报告
+     */
+    public BatchReport dispatch(int minute, List<IUser> users, Predicate<IUser> action) {
+        IMTProperties.Reservation config = imtProperties.getReservation();
+        long windowMillis = TimeUnit.SECONDS.toMillis(config.getWindowSeconds());
+        BatchReport report;
+        if (wheel == null) {
+            report = runner.runChecked(users, IUser::getMobile, action, windowMillis);
+        } else {
+            // 每个用户按手机号哈希到分钟内固定的偏移量，由时间轮在该时刻发起
+            long now = System.currentTimeMillis();
+            long minuteStart = now - now % TimeUnit.MINUTES.toMillis(1);
+            long spreadMillis = Math.max(1, TimeUnit.SECONDS.toMillis(Math.min(config.getSpreadSeconds(), config.getWindowSeconds())));
+            report = runner.runScheduled(users, IUser::getMobile,
+                    user -> minuteStart + offsetMillis(user.getMobile(), spreadMillis) - now,
+                    action, wheel, windowMillis);
+        }
+        logger.info("「批量预约报告」当前分钟: {}, {}", minute, report);
+        return report;
+    }
+
+    /**
+     * 用户在分钟内的发起偏移量（毫秒），同一用户每天固定
+     */
+    static long offsetMillis(Long mobile, long spreadMillis) {
+        long hash = (mobile == null ? 0L : mobile) * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(hash ^ (hash >>> 32), spreadMillis);
+    }
+
+    /**
+     * 时间轮统计
+     *
+     * @return 未启用时间轮时返回空
+     */
+    public Map<String, Object> wheelStats() {
+        return wheel == null ? null : wheel.stats();
+    }
+}
@@ -0,0 +1,69 @@
+package com.oddfar.campus.business.engine;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约请求预取缓存
+ * <p>
+ * 分钟批次开始前，由预取任务为该批次每个用户的每个商品构建好请求；
+ * 批次开始时一次性取出，预约时只剩发送
+ *
+ * @author oddfar
+ */
+@Component
+public class ReservationPrefetcher {
+
+    /**
+     * 预取结果的有效期，超过则视为过期（如上一日遗留）
+     */
+    private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final Map<Integer, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * 保存某个分钟批次的预取结果，覆盖旧结果
+     *
+     * @param minute   批次分钟
+     * @param prepared 用户手机号 -> 该用户已构建的预约请求
+     */
+    public void put(int minute, Map<Long, List<PreparedReservation>> prepared) {
+        batches.put(minute, new Batch(prepared, System.nanoTime()));
+    }
+
+    /**
+     * 取出某个分钟批次的预取结果，取出后即移除
+     *
+     * @param minute 批次分钟
+     * @return 用户手机号 -> 已构建的预约请求，无有效结果时返回空Map
+     */
+    public Map<Long, List<PreparedReservation>> drain(int minute) {
+        Batch batch = batches.remove(minute);
+        if (batch == null || System.nanoTime() - batch.createdAt > MAX_AGE_NANOS) {
+            return Collections.emptyMap();
+        }
+        return batch.prepared;
+    }
+
+    /**
+     * 清空所有预取结果（如门店、场次数据刷新后）
+     */
+    public void clear() {
+        batches.clear();
+    }
+
+    private static final class Batch {
+        private final Map<Long, List<PreparedReservation>> prepared;
+        private final long createdAt;
+
+        private Batch(Map<Long, List<PreparedReservation>> prepared, long createdAt) {
+            this.prepared = prepared;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.oddfar.campus.business.engine;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 调用链各阶段耗时记录
+ * <p>
+ * 各阶段可能在不同线程中并行执行，按完成顺序记录
+ *
+ * @author oddfar
+ */
+public class StageTimer {
+
+    private final long start = System.nanoTime();
+
+    private final Map<String, Long> stages = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * 执行并记录一个阶段的耗时
+     *
+     * @param stage    阶段名称
+     * @param supplier 阶段逻辑
+     * @return 阶段结果
+     */
+    public <T> T time(String stage, Supplier<T> supplier) {
+        long begin = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            stages.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        }
+    }
+
+    /**
+     * 包装为记录耗时的阶段，用于 CompletableFuture.supplyAsync
+     */
+    public <T> Supplier<T> wrap(String stage, Supplier<T> supplier) {
+        return () -> time(stage, supplier);
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    public Map<String, Long> stages() {
+        synchronized (stages) {
+            return new LinkedHashMap<>(stages);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "总耗时: " + elapsedMillis() + "ms, 各阶段(ms): " + stages();
+    }
+}
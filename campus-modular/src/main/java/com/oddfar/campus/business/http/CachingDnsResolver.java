@@ -0,0 +1,58 @@
+package com.oddfar.campus.business.http;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带缓存的DNS解析器
+ * <p>
+ * 预热时主动解析上游域名，预约窗口内建立新连接不再等待DNS
+ *
+ * @author oddfar
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+    private final DnsResolver delegate = SystemDefaultDnsResolver.INSTANCE;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    public CachingDnsResolver(long ttlSeconds) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        Entry entry = cache.get(host);
+        if (entry != null && System.nanoTime() - entry.expireAt < 0) {
+            return entry.addresses.clone();
+        }
+        return refresh(host);
+    }
+
+    /**
+     * 重新解析域名并写入缓存
+     */
+    public InetAddress[] refresh(String host) throws UnknownHostException {
+        InetAddress[] addresses = delegate.resolve(host);
+        cache.put(host, new Entry(addresses, System.nanoTime() + ttlNanos));
+        return addresses.clone();
+    }
+
+    private static final class Entry {
+        private final InetAddress[] addresses;
+        private final long expireAt;
+
+        private Entry(InetAddress[] addresses, long expireAt) {
+            this.addresses = addresses;
+            this.expireAt = expireAt;
+        }
+    }
+}
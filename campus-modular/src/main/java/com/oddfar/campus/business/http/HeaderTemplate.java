@@ -0,0 +1,99 @@
+package com.oddfar.campus.business.http;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的请求头模板
+ * <p>
+ * 公共请求头只构建一次，每个请求在模板基础上追加自己的请求头，避免重复拼装
+ *
+ * @author oddfar
+ */
+public final class HeaderTemplate {
+
+    public static final HeaderTemplate EMPTY = new HeaderTemplate(new Header[0]);
+
+    private final Header[] headers;
+
+    private HeaderTemplate(Header[] headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * 创建模板
+     *
+     * @param nameValues 请求头名称和值，依次排列
+     */
+    public static HeaderTemplate of(String... nameValues) {
+        return EMPTY.with(nameValues);
+    }
+
+    /**
+     * 返回追加（或替换同名）请求头后的新模板，原模板不变
+     */
+    public HeaderTemplate with(String name, String value) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].getName().equalsIgnoreCase(name)) {
+                Header[] copy = headers.clone();
+                copy[i] = new BasicHeader(name, value);
+                return new HeaderTemplate(copy);
+            }
+        }
+        Header[] copy = Arrays.copyOf(headers, headers.length + 1);
+        copy[headers.length] = new BasicHeader(name, value);
+        return new HeaderTemplate(copy);
+    }
+
+    /**
+     * 返回追加（或替换同名）多个请求头后的新模板，原模板不变，只复制一次
+     *
+     * @param nameValues 请求头名称和值，依次排列
+     */
+    public HeaderTemplate with(String... nameValues) {
+        Header[] copy = Arrays.copyOf(headers, headers.length + nameValues.length / 2);
+        int size = headers.length;
+        for (int i = 0; i + 1 < nameValues.length; i += 2) {
+            Header header = new BasicHeader(nameValues[i], nameValues[i + 1]);
+            int j = indexOf(copy, size, nameValues[i]);
+            if (j >= 0) {
+                copy[j] = header;
+            } else {
+                copy[size++] = header;
+            }
+        }
+        return new HeaderTemplate(size == copy.length ? copy : Arrays.copyOf(copy, size));
+    }
+
+    private static int indexOf(Header[] headers, int size, String name) {
+        for (int i = 0; i < size; i++) {
+            if (headers[i].getName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 获取请求头的值
+     */
+    public String get(String name) {
+        for (Header header : headers) {
+            if (header.getName().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    Header[] headers() {
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(headers);
+    }
+}
@@ -0,0 +1,264 @@
+package com.oddfar.campus.business.http;
+
+import com.oddfar.campus.business.cluster.ClusterRateLimiter;
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.business.metrics.IMTMetrics;
+import com.oddfar.campus.common.exception.ServiceException;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * i茅台上游接口HTTP客户端
+ * <p>
+ * app/h5/static 三个域名共用一个按路由分池的长连接池，避免每次请求重新握手
+ *
+ * @author oddfar
+ */
+@Component
+public class IMTHttpClient implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(IMTHttpClient.class);
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private ClusterRateLimiter clusterRateLimiter;
+
+    @Autowired
+    private IMTMetrics imtMetrics;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    private CachingDnsResolver dnsResolver;
+
+    @PostConstruct
+    public void init() {
+        IMTProperties.Http config = imtProperties.getHttp();
+
+        dnsResolver = new CachingDnsResolver(imtProperties.getWarmup().getDnsTtlSeconds());
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        connectionManager = new PoolingHttpClientConnectionManager(registry, dnsResolver);
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(TimeUnit.SECONDS.toMillis(config.getKeepAliveSeconds())))
+                // 各用户身份通过请求头传递，连接池共享时不能保留任何cookie
+                .disableCookieManagement()
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getKeepAliveSeconds(), TimeUnit.SECONDS)
+                .build();
+        logger.info("i茅台HTTP连接池初始化完成，最大连接数: {}, 单域名最大连接数: {}",
+                config.getMaxTotal(), config.getMaxPerRoute());
+    }
+
+    /**
+     * 服务端未声明Keep-Alive超时时，使用配置的保活时间
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long defaultMillis) {
+        return (response, context) -> {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, defaultMillis);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            return defaultMillis;
+        };
+    }
+
+    /**
+     * GET请求
+     *
+     * @param url 请求地址
+     * @return 响应内容
+     */
+    public String get(String url) {
+        return get(url, HeaderTemplate.EMPTY);
+    }
+
+    /**
+     * GET请求
+     *
+     * @param url     请求地址
+     * @param headers 请求头
+     * @return 响应内容
+     */
+    public String get(String url, HeaderTemplate headers) {
+        HttpGet request = new HttpGet(url);
+        return execute(request, headers);
+    }
+
+    /**
+     * GET请求，流式读取响应体
+     *
+     * @param url    请求地址
+     * @param reader 响应体读取逻辑
+     * @return 读取结果
+     */
+    public <T> T get(String url, ResponseReader<T> reader) {
+        HttpGet request = new HttpGet(url);
+        clusterRateLimiter.acquire();
+        long start = imtMetrics.requestStart();
+        int status = 0;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new ServiceException("请求i茅台接口失败: 响应为空");
+            }
+            try (InputStream in = entity.getContent()) {
+                return reader.read(in);
+            }
+        } catch (IOException e) {
+            logger.error("请求i茅台接口失败，url: {}", url, e);
+            throw new ServiceException("请求i茅台接口失败: " + e.getMessage());
+        } finally {
+            imtMetrics.requestEnd(request.getMethod(), request.getURI(), status, null, start);
+        }
+    }
+
+    /**
+     * POST请求
+     *
+     * @param url     请求地址
+     * @param headers 请求头
+     * @param json    JSON请求体，可为空
+     * @return 响应内容
+     */
+    public String post(String url, HeaderTemplate headers, String json) {
+        HttpPost request = new HttpPost(url);
+        if (json != null) {
+            request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        }
+        return execute(request, headers);
+    }
+
+    /**
+     * HEAD请求，仅用于建立并保持连接，不关心响应内容
+     *
+     * @param url 请求地址
+     * @return HTTP状态码
+     */
+    public int head(String url) {
+        HttpHead request = new HttpHead(url);
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            throw new ServiceException("请求i茅台接口失败: " + e.getMessage());
+        }
+    }
+
+    private String execute(HttpRequestBase request, HeaderTemplate headers) {
+        request.setHeaders(headers.headers());
+        // 连接预热的HEAD请求不计入，其余请求都要先获得全集群许可
+        clusterRateLimiter.acquire();
+        long start = imtMetrics.requestStart();
+        int status = 0;
+        String body = null;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            // 读完响应体，连接才能归还连接池复用
+            body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            return body;
+        } catch (IOException e) {
+            logger.error("请求i茅台接口失败，url: {}", request.getURI(), e);
+            throw new ServiceException("请求i茅台接口失败: " + e.getMessage());
+        } finally {
+            imtMetrics.requestEnd(request.getMethod(), request.getURI(), status, body, start);
+        }
+    }
+
+    /**
+     * 连接池统计
+     *
+     * @return 总体及各域名的租用、空闲、等待连接数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", toMap(connectionManager.getTotalStats()));
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toHostString(), toMap(connectionManager.getStats(route)));
+        }
+        stats.put("routes", routes);
+        return stats;
+    }
+
+    private static Map<String, Integer> toMap(PoolStats poolStats) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("leased", poolStats.getLeased());
+        map.put("available", poolStats.getAvailable());
+        map.put("pending", poolStats.getPending());
+        map.put("max", poolStats.getMax());
+        return map;
+    }
+
+    public CachingDnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+}
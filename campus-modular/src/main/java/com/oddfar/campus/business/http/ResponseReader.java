@@ -0,0 +1,23 @@
+package com.oddfar.campus.business.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 响应体流式读取
+ * <p>
+ * 用于体积较大的响应，边下载边解析，不在内存中保留完整的响应内容
+ *
+ * @author oddfar
+ */
+@FunctionalInterface
+public interface ResponseReader<T> {
+
+    /**
+     * 读取响应体
+     *
+     * @param in 响应体输入流，由调用方负责关闭
+     * @return 读取结果
+     */
+    T read(InputStream in) throws IOException;
+}
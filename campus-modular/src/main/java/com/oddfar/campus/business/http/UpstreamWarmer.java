@@ -0,0 +1,97 @@
+package com.oddfar.campus.business.http;
+
+import com.oddfar.campus.business.config.IMTProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上游连接预热
+ * <p>
+ * 在分钟批次开始前解析上游域名，并按预计并发数提前建立连接放入连接池，
+ * 批次中的第一个请求即可直接复用已完成TLS握手的连接
+ *
+ * @author oddfar
+ */
+@Component
+public class UpstreamWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamWarmer.class);
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private IMTHttpClient imtHttpClient;
+
+    @Autowired
+    @Qualifier("imtItemExecutor")
+    private Executor imtItemExecutor;
+
+    /**
+     * 预热上游连接
+     *
+     * @param connections 每个域名期望保持的连接数
+     * @return 预热报告
+     */
+    public WarmupReport warmUp(int connections) {
+        IMTProperties.Warmup config = imtProperties.getWarmup();
+        int target = Math.max(1, Math.min(connections, config.getMaxConnections()));
+        long start = System.nanoTime();
+        WarmupReport report = new WarmupReport();
+        AtomicInteger failures = new AtomicInteger();
+
+        for (String host : config.getHosts()) {
+            try {
+                InetAddress[] addresses = imtHttpClient.getDnsResolver().refresh(host);
+                report.getResolved().put(host, addresses[0].getHostAddress());
+            } catch (Exception e) {
+                logger.warn("「连接预热」域名解析失败，host: {}", host, e);
+                failures.incrementAndGet();
+                continue;
+            }
+
+            // 同时发起请求，迫使连接池为每个请求建立独立连接
+            List<CompletableFuture<Void>> futures = new ArrayList<>(target);
+            for (int i = 0; i < target; i++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        imtHttpClient.head("https://" + host + "/");
+                    } catch (Exception e) {
+                        logger.debug("「连接预热」请求失败，host: {}", host, e);
+                        failures.incrementAndGet();
+                    }
+                }, imtItemExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            report.getConnections().put(host, pooledConnections(host));
+        }
+
+        report.setFailures(failures.get());
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int pooledConnections(String host) {
+        Map<String, Object> routes = (Map<String, Object>) imtHttpClient.stats().get("routes");
+        for (Map.Entry<String, Object> entry : routes.entrySet()) {
+            if (entry.getKey().startsWith(host)) {
+                Map<String, Integer> route = (Map<String, Integer>) entry.getValue();
+                return route.get("available") + route.get("leased");
+            }
+        }
+        return 0;
+    }
+}
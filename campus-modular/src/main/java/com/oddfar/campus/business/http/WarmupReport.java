@@ -0,0 +1,42 @@
+package com.oddfar.campus.business.http;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 上游连接预热报告
+ *
+ * @author oddfar
+ */
+@Data
+public class WarmupReport {
+
+    /**
+     * 解析到的域名地址
+     */
+    private Map<String, String> resolved = new LinkedHashMap<>();
+
+    /**
+     * 各域名成功建立的连接数
+     */
+    private Map<String, Integer> connections = new LinkedHashMap<>();
+
+    /**
+     * 失败数
+     */
+    private int failures;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 所有域名均解析成功且没有连接失败
+     */
+    public boolean isSuccess() {
+        return failures == 0 && !resolved.isEmpty();
+    }
+}
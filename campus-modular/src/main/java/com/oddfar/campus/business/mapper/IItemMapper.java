@@ -2,7 +2,10 @@ package com.oddfar.campus.business.mapper;
 
 import com.oddfar.campus.business.entity.IItem;
 import com.oddfar.campus.common.core.BaseMapperX;
-import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * I茅台预约商品Mapper接口
@@ -11,7 +14,14 @@ import org.apache.ibatis.annotations.Update;
  * @date 2023-07-02
  */
 public interface IItemMapper extends BaseMapperX<IItem> {
-    //清空指定表
-    @Update("truncate table i_item")
-    void truncateItem();
+    //删除全部商品，与 insertBatch 在同一事务中使用
+    @Delete("delete from i_item")
+    void deleteAllItem();
+
+    /**
+     * 批量插入商品，一条语句写入
+     *
+     * @param list 商品列表，itemId 需预先生成
+     */
+    int insertBatch(@Param("list") List<IItem> list);
 }
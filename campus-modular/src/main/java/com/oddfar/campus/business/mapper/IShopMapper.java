@@ -4,7 +4,6 @@ import com.oddfar.campus.business.entity.IShop;
 import com.oddfar.campus.common.core.BaseMapperX;
 import com.oddfar.campus.common.core.LambdaQueryWrapperX;
 import com.oddfar.campus.common.domain.PageResult;
-import org.apache.ibatis.annotations.Update;
 
 /**
  * I茅台商品Mapper接口
@@ -14,10 +13,6 @@ import org.apache.ibatis.annotations.Update;
  */
 
 public interface IShopMapper extends BaseMapperX<IShop> {
-    //清空指定表
-    @Update("truncate table i_shop")
-    void truncateShop();
-
     default PageResult<IShop> selectPage(IShop iShop) {
 
         return selectPage(new LambdaQueryWrapperX<IShop>()
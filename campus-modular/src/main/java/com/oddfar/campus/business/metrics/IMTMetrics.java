@@ -0,0 +1,232 @@
+package com.oddfar.campus.business.metrics;
+
+import com.oddfar.campus.business.engine.BatchReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * i茅台业务指标
+ * <p>
+ * 上游接口按接口、HTTP状态码和业务返回码分别计时，批量任务记录耗时和处理结果，
+ * 线程池记录活跃线程数和排队数，通过 /actuator/prometheus 暴露
+ *
+ * @author oddfar
+ */
+@Component
+public class IMTMetrics {
+
+    /**
+     * 去掉后剩下的路径作为接口名称
+     */
+    private static final String[] PATH_PREFIXES = {"/mt-backend/xhr/front/", "/xhr/front/", "/game/"};
+
+    /**
+     * 接口名称最多保留的路径段数，避免产生过多的指标
+     */
+    private static final int MAX_SEGMENTS = 5;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    @Qualifier("imtExecutor")
+    private Executor imtExecutor;
+
+    @Autowired
+    @Qualifier("imtItemExecutor")
+    private Executor imtItemExecutor;
+
+    @Autowired
+    @Qualifier("imtTravelExecutor")
+    private Executor imtTravelExecutor;
+
+    @Autowired
+    @Qualifier("imtDelayExecutor")
+    private Executor imtDelayExecutor;
+
+    @Autowired
+    @Qualifier("imtWheelExecutor")
+    private Executor imtWheelExecutor;
+
+    @Autowired
+    @Qualifier("imtRefreshExecutor")
+    private Executor imtRefreshExecutor;
+
+    /**
+     * 正在进行的上游请求数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("imt.upstream.inflight", inFlight, AtomicInteger::get)
+                .description("正在进行的上游请求数")
+                .register(registry);
+        bindExecutor("imtExecutor", imtExecutor);
+        bindExecutor("imtItemExecutor", imtItemExecutor);
+        bindExecutor("imtTravelExecutor", imtTravelExecutor);
+        bindExecutor("imtDelayExecutor", imtDelayExecutor);
+        bindExecutor("imtWheelExecutor", imtWheelExecutor);
+        bindExecutor("imtRefreshExecutor", imtRefreshExecutor);
+    }
+
+    private void bindExecutor(String name, Executor executor) {
+        if (!(executor instanceof ThreadPoolTaskExecutor)) {
+            return;
+        }
+        ThreadPoolTaskExecutor pool = (ThreadPoolTaskExecutor) executor;
+        Gauge.builder("imt.executor.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                .description("线程池活跃线程数")
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("imt.executor.queued", pool, p -> p.getThreadPoolExecutor().getQueue().size())
+                .description("线程池排队任务数")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * 开始一次上游请求
+     *
+     * @return 开始时间（纳秒），传给 {@link #requestEnd}
+     */
+    public long requestStart() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束一次上游请求
+     *
+     * @param method HTTP方法
+     * @param uri    请求地址
+     * @param status HTTP状态码，请求未完成时为0
+     * @param body   响应内容，用于解析业务返回码，可为空
+     * @param start  {@link #requestStart} 的返回值
+     */
+    public void requestEnd(String method, URI uri, int status, String body, long start) {
+        inFlight.decrementAndGet();
+        Timer.builder("imt.upstream.requests")
+                .description("上游接口耗时")
+                .tag("endpoint", endpoint(uri))
+                .tag("method", method)
+                .tag("status", status == 0 ? "IO_ERROR" : String.valueOf(status))
+                .tag("code", businessCode(body))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一个批量任务的结果
+     *
+     * @param batch  批量任务名称
+     * @param report 执行报告
+     */
+    public void recordBatch(String batch, BatchReport report) {
+        Timer.builder("imt.batch.duration")
+                .description("批量任务耗时")
+                .tag("batch", batch)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(report.getElapsedMillis(), TimeUnit.MILLISECONDS);
+        batchCounter(batch, "success").increment(report.getSuccess());
+        batchCounter(batch, "failed").increment(report.getFailed());
+        batchCounter(batch, "skipped").increment(report.getSkipped());
+    }
+
+    private Counter batchCounter(String batch, String result) {
+        return Counter.builder("imt.batch.items")
+                .description("批量任务处理的用户数")
+                .tag("batch", batch)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * 接口名称：去掉公共前缀，保留到第一个动态路径段之前
+     * <p>
+     * 如 /mt-backend/xhr/front/mall/shop/list/slim/v3/{sessionId}/... 记为 mall/shop/list/slim/v3
+     */
+    static String endpoint(URI uri) {
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            return uri.getHost() == null ? "unknown" : uri.getHost();
+        }
+        for (String prefix : PATH_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                path = path.substring(prefix.length());
+                break;
+            }
+        }
+        StringBuilder name = new StringBuilder();
+        int segments = 0;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (isDynamic(segment) || segments == MAX_SEGMENTS) {
+                break;
+            }
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(segment);
+            segments++;
+        }
+        return name.length() == 0 ? "/" : name.toString();
+    }
+
+    /**
+     * 纯数字、经过URL编码的路径段视为参数
+     */
+    private static boolean isDynamic(String segment) {
+        if (segment.indexOf('%') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 业务返回码：响应中第一个 code 字段的值，不完整解析JSON
+     */
+    static String businessCode(String body) {
+        if (body == null) {
+            return "none";
+        }
+        int i = body.indexOf("\"code\"");
+        if (i < 0) {
+            return "none";
+        }
+        int j = body.indexOf(':', i + 6);
+        if (j < 0) {
+            return "none";
+        }
+        int k = j + 1;
+        while (k < body.length() && (body.charAt(k) == ' ' || body.charAt(k) == '"')) {
+            k++;
+        }
+        int end = k;
+        while (end < body.length() && end - k < 16 && Character.isLetterOrDigit(body.charAt(end))) {
+            end++;
+        }
+        return end == k ? "none" : body.substring(k, end);
+    }
+}
@@ -0,0 +1,96 @@
+package com.oddfar.campus.business.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 队列中的单个任务：对某个用户执行某个动作
+ *
+ * @author oddfar
+ */
+public final class QueueTask {
+
+    /**
+     * 消息ID，入队前为空
+     */
+    private final String id;
+
+    /**
+     * 动作，如 reservation、travel
+     */
+    private final String action;
+
+    private final Long mobile;
+
+    /**
+     * 所属批次，与动作、手机号一起构成幂等键
+     */
+    private final String runId;
+
+    /**
+     * 过期时间戳（毫秒），过期未执行的任务直接丢弃
+     */
+    private final long expireAt;
+
+    public QueueTask(String action, Long mobile, String runId, long expireAt) {
+        this(null, action, mobile, runId, expireAt);
+    }
+
+    private QueueTask(String id, String action, Long mobile, String runId, long expireAt) {
+        this.id = id;
+        this.action = action;
+        this.mobile = mobile;
+        this.runId = runId;
+        this.expireAt = expireAt;
+    }
+
+    static QueueTask fromFields(String id, Map<?, ?> fields) {
+        return new QueueTask(id, String.valueOf(fields.get("action")), Long.valueOf(String.valueOf(fields.get("mobile"))),
+                String.valueOf(fields.get("runId")), Long.parseLong(String.valueOf(fields.get("expireAt"))));
+    }
+
+    Map<String, String> toFields() {
+        Map<String, String> fields = new HashMap<>(8);
+        fields.put("action", action);
+        fields.put("mobile", String.valueOf(mobile));
+        fields.put("runId", runId);
+        fields.put("expireAt", String.valueOf(expireAt));
+        return fields;
+    }
+
+    /**
+     * 幂等键，同一批次同一用户的同一动作只入队、只执行一次
+     */
+    public String key() {
+        return action + ":" + mobile + ":" + runId;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() > expireAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Long getMobile() {
+        return mobile;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
@@ -0,0 +1,359 @@
+package com.oddfar.campus.business.queue;
+
+import com.oddfar.campus.business.cluster.ClusterMembership;
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.business.engine.BatchReport;
+import com.oddfar.campus.business.engine.BatchRunner;
+import com.oddfar.campus.business.engine.PermitLimiter;
+import com.oddfar.campus.business.metrics.IMTMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Redis Streams 的持久化任务队列
+ * <p>
+ * 批次开始时每个 (用户, 动作) 写入 Stream，各节点以消费组方式读取执行，执行成功后确认；
+ * 节点重启或宕机时未确认的任务留在待处理列表中，空闲超时后由其他消费者认领继续执行。
+ * 入队和执行都以 动作:手机号:批次 为幂等键，多节点重复入队、认领后重复投递都不会重复执行；
+ * 处理逻辑抛出异常即视为失败，不写完成标记、不确认，超过最大投递次数后放弃
+ *
+ * @author oddfar
+ */
+@Component
+public class WorkQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkQueue.class);
+
+    private static final String STREAM_KEY = "mt_queue:tasks";
+
+    private static final String GROUP = "imt-workers";
+
+    /**
+     * 入队幂等键
+     */
+    private static final String ENQUEUED_KEY = "mt_queue:enqueued:";
+
+    /**
+     * 执行完成标记
+     */
+    private static final String DONE_KEY = "mt_queue:done:";
+
+    /**
+     * 幂等键保留时间（小时）
+     */
+    private static final long IDEMPOTENCY_HOURS = 24;
+
+    /**
+     * 入队：写入幂等键和写入Stream在同一脚本中完成，不会出现只写了幂等键、任务却未入队的情况
+     * <p>
+     * KEYS[1]=幂等键，KEYS[2]=Stream，ARGV[1]=幂等键有效期（秒），ARGV[2]=Stream最大长度，其余为字段名和值；
+     * 返回消息ID，已入队过时返回空
+     */
+    private static final DefaultRedisScript<String> ENQUEUE_SCRIPT = new DefaultRedisScript<>(
+            "if not redis.call('set', KEYS[1], '1', 'NX', 'EX', ARGV[1]) then\n" +
+                    "    return false\n" +
+                    "end\n" +
+                    "return redis.call('xadd', KEYS[2], 'MAXLEN', '~', ARGV[2], '*', unpack(ARGV, 3))", String.class);
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ClusterMembership clusterMembership;
+
+    @Autowired
+    private IMTMetrics imtMetrics;
+
+    @Autowired
+    @Qualifier("imtExecutor")
+    private Executor imtExecutor;
+
+    private final Map<String, java.util.function.Consumer<QueueTask>> handlers = new ConcurrentHashMap<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private final AtomicLong acked = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong expired = new AtomicLong();
+
+    private final AtomicLong claimed = new AtomicLong();
+
+    private final AtomicLong dead = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread worker;
+
+    /**
+     * 注册动作的处理逻辑
+     */
+    public void register(String action, java.util.function.Consumer<QueueTask> handler) {
+        handlers.put(action, handler);
+    }
+
+    public boolean isEnabled() {
+        return imtProperties.getQueue().isEnabled();
+    }
+
+    /**
+     * 任务入队，同一幂等键只入队一次，Stream长度近似裁剪到配置的上限
+     *
+     * @return 是否新入队
+     */
+    public boolean enqueue(QueueTask task) {
+        Map<String, String> fields = task.toFields();
+        List<String> args = new ArrayList<>(2 + fields.size() * 2);
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(IDEMPOTENCY_HOURS)));
+        args.add(String.valueOf(imtProperties.getQueue().getMaxLen()));
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            args.add(field.getKey());
+            args.add(field.getValue());
+        }
+        String id = stringRedisTemplate.execute(ENQUEUE_SCRIPT,
+                Arrays.asList(ENQUEUED_KEY + task.key(), STREAM_KEY), args.toArray());
+        if (id == null) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        enqueued.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 批量入队
+     *
+     * @return 新入队的任务数
+     */
+    public int enqueueAll(Collection<QueueTask> tasks) {
+        int count = 0;
+        for (QueueTask task : tasks) {
+            if (enqueue(task)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 应用启动完成、各动作的处理逻辑注册后再开始消费
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        createGroup();
+        running = true;
+        worker = new Thread(this::consume, "imt-queue-consumer");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("「任务队列」消费者启动，consumer: {}", clusterMembership.getNodeId());
+    }
+
+    private void createGroup() {
+        byte[] key = STREAM_KEY.getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.streamCommands().xGroupCreate(key, GROUP, ReadOffset.from("0"), true));
+        } catch (RedisSystemException e) {
+            // 消费组已存在
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private void consume() {
+        IMTProperties.Queue config = imtProperties.getQueue();
+        BatchRunner runner = new BatchRunner("任务队列", imtExecutor, config.getConcurrency(),
+                config.getPermitsPerSecond() > 0 ? new PermitLimiter(config.getPermitsPerSecond()) : null);
+        Consumer consumer = Consumer.from(GROUP, clusterMembership.getNodeId());
+        long claimIntervalNanos = TimeUnit.SECONDS.toNanos(config.getClaimIdleSeconds()) / 2;
+        long nextClaim = System.nanoTime();
+
+        while (running) {
+            try {
+                List<QueueTask> tasks = new ArrayList<>();
+                if (System.nanoTime() - nextClaim >= 0) {
+                    tasks.addAll(claimPending(consumer, config));
+                    nextClaim = System.nanoTime() + claimIntervalNanos;
+                }
+                if (tasks.isEmpty()) {
+                    tasks.addAll(read(consumer, config));
+                }
+                if (!tasks.isEmpty()) {
+                    BatchReport report = runner.run(tasks, QueueTask::key, this::process, 0);
+                    imtMetrics.recordBatch("queue", report);
+                    logger.debug("「任务队列」{}", report);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("「任务队列」消费异常", e);
+                sleepQuietly(TimeUnit.SECONDS.toMillis(1));
+            }
+        }
+    }
+
+    private List<QueueTask> read(Consumer consumer, IMTProperties.Queue config) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(consumer,
+                StreamReadOptions.empty().count(config.getConcurrency()).block(Duration.ofSeconds(2)),
+                StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()));
+        return toTasks(records);
+    }
+
+    /**
+     * 认领空闲超时的待处理任务，超过最大投递次数的任务直接确认丢弃
+     */
+    private List<QueueTask> claimPending(Consumer consumer, IMTProperties.Queue config) {
+        Duration minIdle = Duration.ofSeconds(config.getClaimIdleSeconds());
+        PendingMessages pending = stringRedisTemplate.opsForStream()
+                .pending(STREAM_KEY, GROUP, Range.unbounded(), config.getConcurrency() * 10L);
+        List<RecordId> ids = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) < 0) {
+                continue;
+            }
+            if (message.getTotalDeliveryCount() >= config.getMaxDeliveries()) {
+                logger.error("「任务队列」任务多次执行失败，放弃: {}", message.getIdAsString());
+                stringRedisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP, message.getId());
+                dead.incrementAndGet();
+                continue;
+            }
+            ids.add(message.getId());
+            if (ids.size() >= config.getConcurrency()) {
+                break;
+            }
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                .claim(STREAM_KEY, GROUP, consumer.getName(), minIdle, ids.toArray(new RecordId[0]));
+        claimed.addAndGet(records.size());
+        logger.info("「任务队列」认领待处理任务: {}", records.size());
+        return toTasks(records);
+    }
+
+    private static List<QueueTask> toTasks(List<MapRecord<String, Object, Object>> records) {
+        List<QueueTask> tasks = new ArrayList<>();
+        if (records == null) {
+            return tasks;
+        }
+        for (MapRecord<String, Object, Object> record : records) {
+            tasks.add(QueueTask.fromFields(record.getId().getValue(), record.getValue()));
+        }
+        return tasks;
+    }
+
+    /**
+     * 执行单个任务，成功、过期或已执行过时确认；失败时不确认，留待重新认领
+     */
+    private void process(QueueTask task) {
+        String doneKey = DONE_KEY + task.key();
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(doneKey))) {
+            ack(task);
+            return;
+        }
+        if (task.isExpired()) {
+            expired.incrementAndGet();
+            ack(task);
+            return;
+        }
+        java.util.function.Consumer<QueueTask> handler = handlers.get(task.getAction());
+        if (handler == null) {
+            // 不确认，由注册了该动作的消费者认领
+            throw new IllegalStateException("未注册的动作: " + task.getAction());
+        }
+        try {
+            handler.accept(task);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        }
+        stringRedisTemplate.opsForValue().set(doneKey, "1", IDEMPOTENCY_HOURS, TimeUnit.HOURS);
+        ack(task);
+    }
+
+    private void ack(QueueTask task) {
+        stringRedisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP, task.getId());
+        acked.incrementAndGet();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * 队列统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("enqueued", enqueued.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("acked", acked.get());
+        stats.put("failed", failed.get());
+        stats.put("expired", expired.get());
+        stats.put("claimed", claimed.get());
+        stats.put("dead", dead.get());
+        if (isEnabled()) {
+            PendingMessages pending = stringRedisTemplate.opsForStream()
+                    .pending(STREAM_KEY, GROUP, Range.unbounded(), 1000L);
+            stats.put("pending", pending.size());
+        }
+        return stats;
+    }
+}
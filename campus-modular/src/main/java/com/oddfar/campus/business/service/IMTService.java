@@ -3,6 +3,12 @@ package com.oddfar.campus.business.service;
 import com.oddfar.campus.business.entity.IUser;
 
 public interface IMTService {
+
+    /**
+     * 版本号、场次等数据刷新后的通知频道，各节点收到后清除本地的请求头模板和预取请求
+     */
+    String REFRESH_CHANNEL = "mt_version_refresh";
+
     /**
      * 获取i茅台app版本号
      *
@@ -15,6 +21,11 @@ public interface IMTService {
      */
     void refreshMTVersion();
 
+    /**
+     * 其他节点刷新后，清除本节点缓存的请求头模板和预取请求
+     */
+    void reloadMTVersion();
+
     /**
      * 发送手机验证码
      *
@@ -62,6 +73,21 @@ public interface IMTService {
      */
     void reservationBatch();
 
+    /**
+     * 预取下一个分钟批次的预约请求（门店、加密参数、请求头）
+     */
+    void prefetchBatch();
+
+    /**
+     * 预热下一个分钟批次的上游连接
+     */
+    void warmUpBatch();
+
+    /**
+     * 预加载预约用户所在省份、所选商品的门店库存
+     */
+    void preloadInventories();
+
     /**
      * 批量获得旅行奖励
      */
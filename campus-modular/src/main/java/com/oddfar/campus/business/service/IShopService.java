@@ -2,6 +2,7 @@ package com.oddfar.campus.business.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.oddfar.campus.business.domain.IMTItemInfo;
+import com.oddfar.campus.business.entity.IItem;
 import com.oddfar.campus.business.entity.IShop;
 
 import java.util.List;
@@ -20,6 +21,11 @@ public interface IShopService extends IService<IShop> {
      */
     String getCurrentSessionId();
 
+    /**
+     * 当前场次的预约商品列表
+     */
+    List<IItem> selectItemList();
+
     /**
      * 刷新i茅台预约商品列表
      */
@@ -27,6 +33,13 @@ public interface IShopService extends IService<IShop> {
 
     IShop selectByIShopId(String iShopId);
 
+    /**
+     * 其他节点刷新门店后，重新加载本地门店快照
+     *
+     * @param version 新的门店版本号
+     */
+    void reloadShopSnapshot(long version);
+
     /**
      * 查询所在省市的投放产品和数量
      *
@@ -33,6 +33,19 @@ public interface IUserService {
      */
     List<IUser> selectReservationUserByMinute(int minute);
 
+    /**
+     * 根据手机号查询预约用户
+     *
+     * @param mobile 手机号
+     * @return 用户，不是预约用户时返回null
+     */
+    IUser selectReservationUserByMobile(Long mobile);
+
+    /**
+     * 重新加载预约用户索引
+     */
+    void reloadReservationUser();
+
     /**
      * 添加i茅台用户
      *
@@ -3,22 +3,37 @@ package com.oddfar.campus.business.service.impl;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateUnit;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.crypto.Mode;
-import cn.hutool.crypto.Padding;
-import cn.hutool.crypto.symmetric.AES;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.oddfar.campus.business.cluster.ClusterPartitioner;
+import com.oddfar.campus.business.cluster.LeaderElection;
+import com.oddfar.campus.business.config.IMTProperties;
+import com.oddfar.campus.business.domain.IMTReservationItem;
+import com.oddfar.campus.business.engine.BatchReport;
+import com.oddfar.campus.business.engine.BatchRunner;
+import com.oddfar.campus.business.engine.DelayedTaskScheduler;
+import com.oddfar.campus.business.engine.PermitLimiter;
+import com.oddfar.campus.business.engine.PreparedReservation;
+import com.oddfar.campus.business.engine.ReservationEngine;
+import com.oddfar.campus.business.engine.ReservationPrefetcher;
+import com.oddfar.campus.business.engine.StageTimer;
+import com.oddfar.campus.business.entity.IItem;
 import com.oddfar.campus.business.entity.IUser;
+import com.oddfar.campus.business.http.HeaderTemplate;
+import com.oddfar.campus.business.http.IMTHttpClient;
+import com.oddfar.campus.business.http.UpstreamWarmer;
+import com.oddfar.campus.business.http.WarmupReport;
 import com.oddfar.campus.business.mapper.IUserMapper;
+import com.oddfar.campus.business.metrics.IMTMetrics;
+import com.oddfar.campus.business.queue.QueueTask;
+import com.oddfar.campus.business.queue.WorkQueue;
 import com.oddfar.campus.business.service.IMTLogFactory;
 import com.oddfar.campus.business.service.IMTService;
 import com.oddfar.campus.business.service.IShopService;
 import com.oddfar.campus.business.service.IUserService;
+import com.oddfar.campus.business.utils.IMTCrypto;
 import com.oddfar.campus.common.core.RedisCache;
 import com.oddfar.campus.common.exception.ServiceException;
 import com.oddfar.campus.common.utils.StringUtils;
@@ -30,18 +45,25 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * i茅台服务实现类
@@ -56,13 +78,12 @@ public class IMTServiceImpl implements IMTService {
     /**
      * 常量定义
      */
-    private static final String SALT = "2af72f100c356273d46284f6fd1dfc08";
-    private static final String AES_KEY = "qbhajinldepmucsonaaaccgypwuvcjaa";
-    private static final String AES_IV = "2018534749963515";
     private static final String USER_AGENT = "iOS;16.3;Apple;?unrecognized?";
     private static final String MT_INFO_HEADER = "028e7f96f6369cafe1d105579c5b9377";
     private static final String CONTENT_TYPE_JSON = "application/json";
     private static final String REDIS_KEY_MT_VERSION = "mt_version";
+    private static final String REDIS_KEY_RESERVED = "mt_reserved:";
+    private static final String REDIS_KEY_RESERVATION_DONE = "mt_reservation_done:";
     private static final String APPLE_APP_URL = "https://apps.apple.com/cn/app/i%E8%8C%85%E5%8F%B0/id1600482450";
     private static final String VERSION_PATTERN = "new__latest__version\">(.*?)</p>";
     private static final String VERSION_REPLACE = "版本 ";
@@ -100,16 +121,80 @@ public class IMTServiceImpl implements IMTService {
     @Qualifier("imtExecutor")
     private Executor imtExecutor;
 
+    @Autowired
+    @Qualifier("imtItemExecutor")
+    private Executor imtItemExecutor;
+
+    @Autowired
+    @Qualifier("imtTravelExecutor")
+    private Executor imtTravelExecutor;
+
+    @Autowired
+    private ReservationEngine reservationEngine;
+
+    @Autowired
+    private IMTHttpClient imtHttpClient;
+
+    @Autowired
+    private UpstreamWarmer upstreamWarmer;
+
+    @Autowired
+    private ReservationPrefetcher reservationPrefetcher;
+
+    @Autowired
+    private DelayedTaskScheduler delayedTaskScheduler;
+
+    @Autowired
+    private IMTProperties imtProperties;
+
+    @Autowired
+    private ClusterPartitioner clusterPartitioner;
+
+    @Autowired
+    private LeaderElection leaderElection;
+
+    @Autowired
+    private WorkQueue workQueue;
+
+    @Autowired
+    private IMTMetrics imtMetrics;
+
+    /**
+     * App接口公共请求头模板
+     */
+    private volatile HeaderTemplate appTemplate;
+
     /**
      * 项目启动时，初始化数据
      */
     @PostConstruct
     public void init() {
+        // 任务队列中的动作，失败时抛出异常，任务留在待处理列表中重新投递；预约重新投递时只发送失败的商品
+        workQueue.register("reservation", task -> {
+            IUser iUser = iUserService.selectReservationUserByMobile(task.getMobile());
+            if (iUser != null) {
+                int failed = reservation(iUser, null, task);
+                if (failed > 0) {
+                    throw new ServiceException("预约失败的商品数: " + failed);
+                }
+            }
+        });
+        workQueue.register("travel", task -> {
+            IUser iUser = iUserService.selectReservationUserByMobile(task.getMobile());
+            if (iUser != null && !travelRewardAndLog(iUser)) {
+                throw new ServiceException("获得旅行奖励失败");
+            }
+        });
+
         imtExecutor.execute(() -> {
             try {
-                logger.info("开始初始化i茅台数据");
-                refreshAll();
-                logger.info("i茅台数据初始化完成");
+                //多节点同时启动时只由一个节点刷新，其余节点按需从Redis加载
+                if (leaderElection.runAsLeader("init", DateUtil.format(new Date(), "yyyyMMddHHmm"), () -> {
+                    logger.info("开始初始化i茅台数据");
+                    refreshAll();
+                })) {
+                    logger.info("i茅台数据初始化完成");
+                }
             } catch (Exception e) {
                 logger.error("初始化i茅台数据失败", e);
             }
@@ -146,10 +231,34 @@ public class IMTServiceImpl implements IMTService {
 
     @Override
     public void refreshMTVersion() {
+        refreshVersion();
+        notifyRefreshed();
+    }
+
+    private void refreshVersion() {
         redisCache.deleteObject(REDIS_KEY_MT_VERSION);
+        appTemplate = null;
         getMTVersion();
     }
 
+    /**
+     * 通知所有节点（包括本节点）丢弃依赖旧数据的本地缓存
+     */
+    private void notifyRefreshed() {
+        try {
+            redisCache.publish(REFRESH_CHANNEL, System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.error("发布刷新通知失败", e);
+        }
+    }
+
+    @Override
+    public void reloadMTVersion() {
+        appTemplate = null;
+        reservationPrefetcher.clear();
+        logger.info("收到刷新通知，已清除本地请求头模板和预取请求");
+    }
+
     @Override
     public Boolean sendCode(String mobile, String deviceId) {
         Map<String, Object> data = new HashMap<>();
@@ -158,13 +267,9 @@ public class IMTServiceImpl implements IMTService {
         data.put("md5", signature(mobile, curTime));
         data.put("timestamp", String.valueOf(curTime));
 
-        HttpRequest request = HttpUtil.createRequest(Method.POST,
-                "https://app.moutai519.com.cn/xhr/front/user/register/vcode");
-        setCommonHeaders(request, deviceId);
-        request.header("Content-Type", CONTENT_TYPE_JSON);
-
-        HttpResponse execute = request.body(JSONObject.toJSONString(data)).execute();
-        JSONObject jsonObject = JSONObject.parseObject(execute.body());
+        String body = imtHttpClient.post("https://app.moutai519.com.cn/xhr/front/user/register/vcode",
+                appTemplate().with("MT-Device-ID", deviceId, "Content-Type", CONTENT_TYPE_JSON), JSONObject.toJSONString(data));
+        JSONObject jsonObject = JSONObject.parseObject(body);
         logger.info("「发送验证码返回」mobile: {}, response: {}", mobile, jsonObject.toJSONString());
         
         if (String.valueOf(SUCCESS_CODE_2000).equals(jsonObject.getString("code"))) {
@@ -187,19 +292,14 @@ public class IMTServiceImpl implements IMTService {
         map.put("timestamp", String.valueOf(curTime));
         map.put("MT-APP-Version", getMTVersion());
 
-        HttpRequest request = HttpUtil.createRequest(Method.POST,
-                "https://app.moutai519.com.cn/xhr/front/user/register/login");
-        
         IUser user = iUserMapper.selectById(mobile);
         if (user != null) {
             deviceId = user.getDeviceId();
         }
-        
-        setCommonHeaders(request, deviceId);
-        request.header("Content-Type", CONTENT_TYPE_JSON);
 
-        HttpResponse execute = request.body(JSONObject.toJSONString(map)).execute();
-        JSONObject body = JSONObject.parseObject(execute.body());
+        String res = imtHttpClient.post("https://app.moutai519.com.cn/xhr/front/user/register/login",
+                appTemplate().with("MT-Device-ID", deviceId, "Content-Type", CONTENT_TYPE_JSON), JSONObject.toJSONString(map));
+        JSONObject body = JSONObject.parseObject(res);
 
         if (String.valueOf(SUCCESS_CODE_2000).equals(body.getString("code"))) {
             iUserService.insertIUser(Long.parseLong(mobile), deviceId, body);
@@ -215,36 +315,100 @@ public class IMTServiceImpl implements IMTService {
 
     @Override
     public void reservation(IUser iUser) {
+        reservation(iUser, null, (QueueTask) null);
+    }
+
+    /**
+     * 预约用户配置的所有商品，已预取的商品直接发送，其余现场构建
+     * <p>
+     * 来自任务队列时按任务记录预约成功的商品，任务重新投递时跳过这些商品
+     *
+     * @param iUser    用户信息
+     * @param prepared 该用户已预取的预约请求，可为空
+     * @param task     所属的队列任务，不是来自任务队列时为空
+     * @return 预约失败的商品数
+     */
+    private int reservation(IUser iUser, List<PreparedReservation> prepared, QueueTask task) {
         if (StringUtils.isEmpty(iUser.getItemCode())) {
             logger.warn("用户未配置预约商品，mobile: {}", iUser.getMobile());
-            return;
+            return 0;
         }
-        String[] items = iUser.getItemCode().split("@");
-        if (items.length == 0) {
+        String[] itemCodes = iUser.getItemCode().split("@");
+        if (itemCodes.length == 0) {
             logger.warn("用户预约商品配置为空，mobile: {}", iUser.getMobile());
-            return;
+            return 0;
+        }
+        Set<String> done = task == null ? Collections.emptySet() : reservationDone(task);
+        List<String> items = new ArrayList<>(itemCodes.length);
+        for (String itemId : itemCodes) {
+            if (!done.contains(itemId)) {
+                items.add(itemId);
+            }
+        }
+        if (items.isEmpty()) {
+            logger.info("「预约重试」商品均已预约成功，mobile: {}, 任务: {}", iUser.getMobile(), task);
+            return 0;
+        }
+
+        Map<String, PreparedReservation> preparedByItem = new HashMap<>();
+        if (prepared != null) {
+            for (PreparedReservation request : prepared) {
+                preparedByItem.put(request.getItemId(), request);
+            }
         }
 
         StringBuilder logContent = new StringBuilder();
-        logContent.append(String.format("「开始预约」mobile: %s, 商品数量: %d\n", iUser.getMobile(), items.length));
-        
+        logContent.append(String.format("「开始预约」mobile: %s, 商品数量: %d\n", iUser.getMobile(), items.size()));
+
+        // 各商品并行获取门店并提交预约，按商品顺序合并结果
+        Set<String> succeeded = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<String>> futures = new ArrayList<>(items.size());
         for (String itemId : items) {
-            try {
-                String shopId = iShopService.getShopId(iUser.getShopType(), itemId,
-                        iUser.getProvinceName(), iUser.getCityName(), iUser.getLat(), iUser.getLng());
-                JSONObject json = reservation(iUser, itemId, shopId);
-                logContent.append(String.format("[预约项目]：%s\n[shopId]：%s\n[结果返回]：%s\n\n", 
-                    itemId, shopId, json.toString()));
-                logger.info("「预约成功」mobile: {}, itemId: {}, shopId: {}", iUser.getMobile(), itemId, shopId);
-            } catch (Exception e) {
-                logger.error("「预约失败」mobile: {}, itemId: {}", iUser.getMobile(), itemId, e);
-                logContent.append(String.format("执行报错--[预约项目]：%s\n[结果返回]：%s\n\n", 
-                    itemId, e.getMessage()));
-            }
+            PreparedReservation request = preparedByItem.get(itemId);
+            futures.add(CompletableFuture.supplyAsync(() -> reservationItem(iUser, itemId, request, succeeded), imtItemExecutor));
+        }
+        for (CompletableFuture<String> future : futures) {
+            logContent.append(future.join());
         }
 
+        // 全部商品发送完成后再记录，不占用预约请求的时间
+        if (!succeeded.isEmpty()) {
+            markReserved(iUser);
+            if (task != null) {
+                markReservationDone(task, succeeded);
+            }
+        }
         IMTLogFactory.reservation(iUser, logContent.toString());
-        getEnergyAwardDelay(iUser);
+        // 队列任务只在首次有商品预约成功时安排申购耐力值，重新投递时不再重复安排
+        if (task == null || (done.isEmpty() && !succeeded.isEmpty())) {
+            getEnergyAwardDelay(iUser);
+        }
+        return items.size() - succeeded.size();
+    }
+
+    /**
+     * 预约单个商品
+     *
+     * @param iUser   用户信息
+     * @param itemId  商品ID
+     * @param request   已预取的预约请求，为空时现场构建
+     * @param succeeded 预约成功的商品，成功时加入
+     * @return 该商品的日志内容
+     */
+    private String reservationItem(IUser iUser, String itemId, PreparedReservation request, Set<String> succeeded) {
+        try {
+            if (request == null) {
+                request = prepareReservation(iUser, itemId);
+            }
+            JSONObject json = sendReservation(request);
+            succeeded.add(itemId);
+            return String.format("[预约项目]：%s\n[shopId]：%s\n[结果返回]：%s\n\n",
+                    itemId, request.getShopId(), json.toString());
+        } catch (Exception e) {
+            logger.error("「预约失败」mobile: {}, itemId: {}", iUser.getMobile(), itemId, e);
+            return String.format("执行报错--[预约项目]：%s\n[结果返回]：%s\n\n",
+                    itemId, e.getMessage());
+        }
     }
 
     /**
@@ -253,25 +417,21 @@ public class IMTServiceImpl implements IMTService {
      * @param iUser 用户信息
      */
     public void getEnergyAwardDelay(IUser iUser) {
-        imtExecutor.execute(() -> {
+        delayedTaskScheduler.schedule("申购耐力值:" + iUser.getMobile(), () -> {
             StringBuilder logContent = new StringBuilder();
             try {
-                TimeUnit.SECONDS.sleep(DELAY_SECONDS_10);
                 logger.debug("开始获取申购耐力值，mobile: {}", iUser.getMobile());
                 String energyAward = getEnergyAward(iUser);
                 logContent.append("[申购耐力值]:").append(energyAward);
                 logger.info("「获取申购耐力值成功」mobile: {}, result: {}", iUser.getMobile(), energyAward);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("「获取申购耐力值被中断」mobile: {}", iUser.getMobile(), e);
-                logContent.append("执行报错--[申购耐力值]:").append(e.getMessage());
             } catch (Exception e) {
                 logger.error("「获取申购耐力值失败」mobile: {}", iUser.getMobile(), e);
                 logContent.append("执行报错--[申购耐力值]:").append(e.getMessage());
             }
             IMTLogFactory.reservation(iUser, logContent.toString());
-        });
+        }, DELAY_SECONDS_10, TimeUnit.SECONDS);
     }
+
     /**
      * 领取小茅运
      *
@@ -279,11 +439,8 @@ public class IMTServiceImpl implements IMTService {
      */
     public void receiveReward(IUser iUser) {
         String url = "https://h5.moutai519.com.cn/game/xmTravel/receiveReward";
-        HttpRequest request = HttpUtil.createRequest(Method.POST, url);
-        setWapHeaders(request, iUser);
-
-        HttpResponse execute = request.execute();
-        JSONObject body = JSONObject.parseObject(execute.body());
+        String res = imtHttpClient.post(url, wapHeaders(iUser), null);
+        JSONObject body = JSONObject.parseObject(res);
 
         if (body.getInteger("code") != SUCCESS_CODE_2000) {
             String errorMsg = body.getString("message");
@@ -302,10 +459,7 @@ public class IMTServiceImpl implements IMTService {
     @Override
     public String getEnergyAward(IUser iUser) {
         String url = "https://h5.moutai519.com.cn/game/isolationPage/getUserEnergyAward";
-        HttpRequest request = HttpUtil.createRequest(Method.POST, url);
-        setWapHeaders(request, iUser);
-
-        String body = request.execute().body();
+        String body = imtHttpClient.post(url, wapHeaders(iUser), null);
         JSONObject jsonObject = JSONObject.parseObject(body);
         
         if (jsonObject.getInteger("code") != SUCCESS_CODE_200) {
@@ -319,21 +473,37 @@ public class IMTServiceImpl implements IMTService {
 
     @Override
     public void getTravelReward(IUser iUser) {
+        travelRewardAndLog(iUser);
+    }
+
+    /**
+     * 获得旅行奖励并记录日志
+     *
+     * @return 是否成功
+     */
+    private boolean travelRewardAndLog(IUser iUser) {
+        boolean success = false;
         StringBuilder logContent = new StringBuilder();
         try {
             logger.info("「开始获得旅行奖励」mobile: {}", iUser.getMobile());
             String s = travelReward(iUser);
             logContent.append("[获得旅行奖励]:").append(s);
             logger.info("「获得旅行奖励成功」mobile: {}, result: {}", iUser.getMobile(), s);
+            success = true;
         } catch (Exception e) {
             logger.error("「获得旅行奖励失败」mobile: {}", iUser.getMobile(), e);
             logContent.append("执行报错--[获得旅行奖励]:").append(e.getMessage());
         }
         IMTLogFactory.reservation(iUser, logContent.toString());
+        return success;
     }
 
     /**
      * 获得旅行奖励
+     * <p>
+     * 调用链按依赖关系并行执行：
+     * 页面数据与本月剩余奖励并行查询；页面数据返回后，按需并行领取耐力值、查询可领取小茅运；
+     * 校验通过后领取小茅运，最后开始旅行
      *
      * @param iUser 用户信息
      * @return 旅行结果
@@ -343,26 +513,66 @@ public class IMTServiceImpl implements IMTService {
         if (!(TRAVEL_START_HOUR <= hour && hour < TRAVEL_END_HOUR)) {
             throw new ServiceException("活动未开始，开始时间9点-20点");
         }
-        
-        Map<String, Integer> pageData = getUserIsolationPageData(iUser);
-        Integer status = pageData.get("status");
-        
-        if (status == TRAVEL_STATUS_COMPLETED) {
-            Integer currentPeriodCanConvertXmyNum = pageData.get("currentPeriodCanConvertXmyNum");
-            Double travelRewardXmy = getXmTravelReward(iUser);
-            receiveReward(iUser);
-            
-            if (travelRewardXmy > currentPeriodCanConvertXmyNum) {
-                throw new ServiceException("当月无可领取奖励");
+
+        StageTimer timer = new StageTimer();
+        try {
+            return travelRewardGraph(iUser, timer).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
+        } finally {
+            logger.info("「旅行奖励调用链」mobile: {}, {}", iUser.getMobile(), timer);
         }
+    }
 
-        Integer remainChance = pageData.get("remainChance");
-        if (remainChance < MIN_REMAIN_CHANCE) {
-            throw new ServiceException("当日旅行次数已耗尽");
-        }
-        
-        return startTravel(iUser);
+    private CompletableFuture<String> travelRewardGraph(IUser iUser, StageTimer timer) {
+        CompletableFuture<JSONObject> page = CompletableFuture.supplyAsync(
+                timer.wrap("isolationPage", () -> isolationPage(iUser)), imtTravelExecutor);
+        CompletableFuture<Integer> exchangeRate = CompletableFuture.supplyAsync(
+                timer.wrap("exchangeRateInfo", () -> getExchangeRateInfo(iUser)), imtTravelExecutor);
+
+        // 有可领取的耐力值时先领取
+        CompletableFuture<Integer> energyAward = page.thenCompose(data -> {
+            Integer energyValue = data.getJSONObject("energyReward").getInteger("value");
+            if (energyValue == null || energyValue <= 0) {
+                return CompletableFuture.completedFuture(0);
+            }
+            logger.debug("检测到可领取耐力值奖励，mobile: {}, energyValue: {}", iUser.getMobile(), energyValue);
+            return CompletableFuture.supplyAsync(timer.wrap("energyAward", () -> {
+                getEnergyAward(iUser);
+                return energyValue;
+            }), imtTravelExecutor);
+        });
+
+        // 旅行已结束时查询可领取的小茅运，只读接口，与校验并行
+        CompletableFuture<Double> xmTravelReward = page.thenCompose(data -> {
+            if (data.getJSONObject("xmTravel").getIntValue("status") != TRAVEL_STATUS_COMPLETED) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.supplyAsync(
+                    timer.wrap("xmTravelReward", () -> getXmTravelReward(iUser)), imtTravelExecutor);
+        });
+
+        CompletableFuture<Map<String, Integer>> pageData = energyAward.thenCombine(exchangeRate,
+                (award, rate) -> checkIsolationPage(iUser, page.join(), award, rate));
+
+        return pageData.thenCombine(xmTravelReward, (data, travelRewardXmy) -> {
+            if (data.get("status") == TRAVEL_STATUS_COMPLETED) {
+                timer.time("receiveReward", () -> {
+                    receiveReward(iUser);
+                    return null;
+                });
+                if (travelRewardXmy > data.get("currentPeriodCanConvertXmyNum")) {
+                    throw new ServiceException("当月无可领取奖励");
+                }
+            }
+            if (data.get("remainChance") < MIN_REMAIN_CHANCE) {
+                throw new ServiceException("当日旅行次数已耗尽");
+            }
+            return timer.time("startTravel", () -> startTravel(iUser));
+        });
     }
 
     /**
@@ -373,10 +583,7 @@ public class IMTServiceImpl implements IMTService {
      */
     public String startTravel(IUser iUser) {
         String url = "https://h5.moutai519.com.cn/game/xmTravel/startTravel";
-        HttpRequest request = HttpUtil.createRequest(Method.POST, url);
-        setWapHeadersWithoutLocation(request, iUser);
-        
-        String body = request.execute().body();
+        String body = imtHttpClient.post(url, wapHeadersWithoutLocation(iUser), null);
         JSONObject jsonObject = JSONObject.parseObject(body);
         
         if (jsonObject.getInteger("code") != SUCCESS_CODE_2000) {
@@ -398,10 +605,7 @@ public class IMTServiceImpl implements IMTService {
      */
     public Double getXmTravelReward(IUser iUser) {
         String url = "https://h5.moutai519.com.cn/game/xmTravel/getXmTravelReward";
-        HttpRequest request = HttpUtil.createRequest(Method.GET, url);
-        setWapHeadersWithoutLocation(request, iUser);
-        
-        String body = request.execute().body();
+        String body = imtHttpClient.get(url, wapHeadersWithoutLocation(iUser));
         JSONObject jsonObject = JSONObject.parseObject(body);
         
         if (jsonObject.getInteger("code") != SUCCESS_CODE_2000) {
@@ -422,11 +626,27 @@ public class IMTServiceImpl implements IMTService {
      * @return 页面数据
      */
     public Map<String, Integer> getUserIsolationPageData(IUser iUser) {
-        String url = "https://h5.moutai519.com.cn/game/isolationPage/getUserIsolationPageData";
-        HttpRequest request = HttpUtil.createRequest(Method.GET, url);
-        setWapHeadersWithoutLocation(request, iUser);
-        
-        String body = request.form("__timestamp", DateUtil.currentSeconds()).execute().body();
+        JSONObject data = isolationPage(iUser);
+        Integer energyValue = data.getJSONObject("energyReward").getInteger("value");
+        int energyAward = 0;
+        if (energyValue != null && energyValue > 0) {
+            logger.debug("检测到可领取耐力值奖励，mobile: {}, energyValue: {}", iUser.getMobile(), energyValue);
+            getEnergyAward(iUser);
+            energyAward = energyValue;
+        }
+        return checkIsolationPage(iUser, data, energyAward, getExchangeRateInfo(iUser));
+    }
+
+    /**
+     * 查询用户页面数据
+     *
+     * @param iUser 用户信息
+     * @return 页面数据（data节点）
+     */
+    private JSONObject isolationPage(IUser iUser) {
+        String url = "https://h5.moutai519.com.cn/game/isolationPage/getUserIsolationPageData?__timestamp="
+                + DateUtil.currentSeconds();
+        String body = imtHttpClient.get(url, wapHeadersWithoutLocation(iUser));
         JSONObject jsonObject = JSONObject.parseObject(body);
         
         if (jsonObject.getInteger("code") != SUCCESS_CODE_2000) {
@@ -434,23 +654,25 @@ public class IMTServiceImpl implements IMTService {
             logger.error("「获取用户页面数据失败」mobile: {}, response: {}", iUser.getMobile(), body);
             throw new ServiceException(StringUtils.isNotEmpty(message) ? message : "获取用户页面数据失败");
         }
-        
-        JSONObject data = jsonObject.getJSONObject("data");
-        int energy = data.getIntValue("energy");
+        return jsonObject.getJSONObject("data");
+    }
+
+    /**
+     * 校验用户页面数据
+     *
+     * @param iUser            用户信息
+     * @param data             页面数据
+     * @param energyAward      本次领取的耐力值
+     * @param exchangeRateInfo 本月剩余奖励耐力值
+     * @return 剩余旅行次数、旅行状态、本月剩余奖励耐力值
+     */
+    private Map<String, Integer> checkIsolationPage(IUser iUser, JSONObject data, int energyAward, int exchangeRateInfo) {
+        int energy = data.getIntValue("energy") + energyAward;
         JSONObject xmTravel = data.getJSONObject("xmTravel");
-        JSONObject energyReward = data.getJSONObject("energyReward");
         Integer status = xmTravel.getInteger("status");
         Long travelEndTime = xmTravel.getLong("travelEndTime");
         int remainChance = xmTravel.getIntValue("remainChance");
-        Integer energyValue = energyReward.getInteger("value");
 
-        if (energyValue != null && energyValue > 0) {
-            logger.debug("检测到可领取耐力值奖励，mobile: {}, energyValue: {}", iUser.getMobile(), energyValue);
-            getEnergyAward(iUser);
-            energy += energyValue;
-        }
-
-        int exchangeRateInfo = getExchangeRateInfo(iUser);
         if (exchangeRateInfo <= 0) {
             logger.warn("「当月无可领取奖励」mobile: {}", iUser.getMobile());
             throw new ServiceException("当月无可领取奖励");
@@ -490,11 +712,9 @@ public class IMTServiceImpl implements IMTService {
      * @return 剩余奖励耐力值
      */
     public int getExchangeRateInfo(IUser iUser) {
-        String url = "https://h5.moutai519.com.cn/game/synthesize/exchangeRateInfo";
-        HttpRequest request = HttpUtil.createRequest(Method.GET, url);
-        setWapHeadersWithoutLocation(request, iUser);
-
-        String body = request.form("__timestamp", DateUtil.currentSeconds()).execute().body();
+        String url = "https://h5.moutai519.com.cn/game/synthesize/exchangeRateInfo?__timestamp="
+                + DateUtil.currentSeconds();
+        String body = imtHttpClient.get(url, wapHeadersWithoutLocation(iUser));
         JSONObject jsonObject = JSONObject.parseObject(body);
         
         if (jsonObject.getInteger("code") != SUCCESS_CODE_2000) {
@@ -511,38 +731,144 @@ public class IMTServiceImpl implements IMTService {
     @Async
     @Override
     public void reservationBatch() {
-        int minute = DateUtil.minute(new Date());
-        List<IUser> iUsers = iUserService.selectReservationUserByMinute(minute);
+        Date now = new Date();
+        int minute = DateUtil.minute(now);
+        if (workQueue.isEnabled()) {
+            enqueue("reservation", now, iUserService.selectReservationUserByMinute(minute));
+            return;
+        }
+        List<IUser> iUsers = clusterPartitioner.owned(bucket("reservation", now),
+                iUserService.selectReservationUserByMinute(minute), IUser::getMobile);
         
         if (iUsers == null || iUsers.isEmpty()) {
             logger.debug("「批量预约」当前分钟({})无待预约用户", minute);
             return;
         }
         
-        logger.info("「批量预约开始」当前分钟: {}, 用户数量: {}", minute, iUsers.size());
+        Map<Long, List<PreparedReservation>> prepared = reservationPrefetcher.drain(minute);
+        logger.info("「批量预约开始」当前分钟: {}, 用户数量: {}, 已预取用户数: {}", minute, iUsers.size(), prepared.size());
+        BatchReport report = reservationEngine.dispatch(minute, iUsers,
+                iUser -> reservation(iUser, prepared.get(iUser.getMobile()), null) == 0);
+        imtMetrics.recordBatch("reservation", report);
+        logger.info("「批量预约结束」当前分钟: {}, 处理用户数: {}, 跳过用户数: {}",
+                minute, report.getSuccess() + report.getFailed(), report.getSkipped());
+    }
+
+    /**
+     * 批次的全部用户写入任务队列，由各节点的消费者执行
+     * <p>
+     * 各节点都会入队同一批次，幂等键保证每个用户只入队一次；本小时内未执行完的任务过期丢弃
+     */
+    private void enqueue(String action, Date now, List<IUser> iUsers) {
+        if (iUsers == null || iUsers.isEmpty()) {
+            return;
+        }
+        String runId = DateUtil.format(now, "yyyyMMddHHmm");
+        long expireAt = DateUtil.endOfHour(now).getTime();
+        List<QueueTask> tasks = new ArrayList<>(iUsers.size());
+        for (IUser iUser : iUsers) {
+            tasks.add(new QueueTask(action, iUser.getMobile(), runId, expireAt));
+        }
+        int count = workQueue.enqueueAll(tasks);
+        logger.info("「任务入队」动作: {}, 批次: {}, 用户数: {}, 新入队: {}", action, runId, iUsers.size(), count);
+    }
+
+    /**
+     * 分钟批次标识，各节点据此对同一批次的用户分片
+     */
+    private static String bucket(String task, Date time) {
+        return task + ":" + DateUtil.format(time, "yyyyMMddHHmm");
+    }
+
+    @Override
+    public void prefetchBatch() {
+        if (workQueue.isEnabled()) {
+            // 队列模式下由消费者现场构建请求
+            return;
+        }
+        Date next = DateUtil.offsetMinute(new Date(), 1);
+        int minute = DateUtil.minute(next);
+        // 与下一分钟的批量预约使用同一个分片
+        List<IUser> iUsers = clusterPartitioner.owned(bucket("reservation", next),
+                iUserService.selectReservationUserByMinute(minute), IUser::getMobile);
+        if (iUsers == null || iUsers.isEmpty()) {
+            logger.debug("「预取预约请求」下一分钟({})无待预约用户", minute);
+            return;
+        }
 
+        // 在 @Async 线程（系统 scheduledExecutorService）中顺序构建，不占用正在进行的批次的发送线程
+        long start = System.currentTimeMillis();
+        Map<Long, List<PreparedReservation>> prepared = new HashMap<>(iUsers.size() * 2);
+        int count = 0;
+        int failed = 0;
         for (IUser iUser : iUsers) {
-            logger.info("「开始预约用户」mobile: {}", iUser.getMobile());
-            try {
-                reservation(iUser);
-                TimeUnit.SECONDS.sleep(DELAY_SECONDS_3);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("「批量预约被中断」当前分钟: {}", minute, e);
-                break;
-            } catch (Exception e) {
-                logger.error("「预约用户失败」mobile: {}", iUser.getMobile(), e);
+            if (StringUtils.isEmpty(iUser.getItemCode())) {
+                continue;
             }
+            List<PreparedReservation> requests = new ArrayList<>();
+            for (String itemId : iUser.getItemCode().split("@")) {
+                try {
+                    requests.add(prepareReservation(iUser, itemId));
+                    count++;
+                } catch (Exception e) {
+                    // 预取失败的商品在预约时现场构建
+                    logger.warn("「预取预约请求失败」mobile: {}, itemId: {}, error: {}", iUser.getMobile(), itemId, e.getMessage());
+                    failed++;
+                }
+            }
+            prepared.put(iUser.getMobile(), requests);
+        }
+        reservationPrefetcher.put(minute, prepared);
+        logger.info("「预取预约请求完成」下一分钟: {}, 用户数: {}, 请求数: {}, 失败数: {}, 耗时: {}ms",
+                minute, prepared.size(), count, failed, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void warmUpBatch() {
+        if (!imtProperties.getWarmup().isEnabled()) {
+            return;
+        }
+        Date next = DateUtil.offsetMinute(new Date(), 1);
+        int minute = DateUtil.minute(next);
+        List<IUser> iUsers = clusterPartitioner.owned(bucket("reservation", next),
+                iUserService.selectReservationUserByMinute(minute), IUser::getMobile);
+        if (iUsers == null || iUsers.isEmpty()) {
+            logger.debug("「连接预热」下一分钟({})无待预约用户", minute);
+            return;
+        }
+
+        // 预计并发请求数：同时预约的用户数 × 每个用户的商品数
+        int items = 0;
+        int maxItems = 1;
+        for (IUser iUser : iUsers) {
+            int count = StringUtils.isEmpty(iUser.getItemCode()) ? 0 : iUser.getItemCode().split("@").length;
+            items += count;
+            maxItems = Math.max(maxItems, count);
+        }
+        int connections = Math.min(items, imtProperties.getReservation().getConcurrency() * maxItems);
+
+        WarmupReport report = upstreamWarmer.warmUp(connections);
+        if (report.isSuccess()) {
+            logger.info("「连接预热完成」下一分钟: {}, 用户数: {}, 连接数: {}, 解析: {}, 耗时: {}ms",
+                    minute, iUsers.size(), report.getConnections(), report.getResolved(), report.getElapsedMillis());
+        } else {
+            logger.warn("「连接预热未完全成功」下一分钟: {}, 失败数: {}, 连接数: {}, 解析: {}, 耗时: {}ms",
+                    minute, report.getFailures(), report.getConnections(), report.getResolved(), report.getElapsedMillis());
         }
-        logger.info("「批量预约结束」当前分钟: {}, 处理用户数: {}", minute, iUsers.size());
     }
 
     @Async
     @Override
     public void getTravelRewardBatch() {
         try {
-            int minute = DateUtil.minute(new Date());
-            List<IUser> iUsers = iUserService.selectReservationUserByMinute(minute);
+            Date now = new Date();
+            int minute = DateUtil.minute(now);
+            if (workQueue.isEnabled()) {
+                enqueue("travel", now, iUserService.selectReservationUserByMinute(minute));
+                return;
+            }
+            List<IUser> iUsers = clusterPartitioner.owned(bucket("travel", now),
+                    iUserService.selectReservationUserByMinute(minute), IUser::getMobile);
             
             if (iUsers == null || iUsers.isEmpty()) {
                 logger.debug("「批量获得旅行奖励」当前分钟({})无待处理用户", minute);
@@ -551,20 +877,13 @@ public class IMTServiceImpl implements IMTService {
             
             logger.info("「批量获得旅行奖励开始」当前分钟: {}, 用户数量: {}", minute, iUsers.size());
 
-            for (IUser iUser : iUsers) {
-                logger.info("「开始获得旅行奖励」mobile: {}", iUser.getMobile());
-                try {
-                    getTravelReward(iUser);
-                    TimeUnit.SECONDS.sleep(DELAY_SECONDS_3);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.error("「批量获得旅行奖励被中断」当前分钟: {}", minute, e);
-                    break;
-                } catch (Exception e) {
-                    logger.error("「获得旅行奖励失败」mobile: {}", iUser.getMobile(), e);
-                }
-            }
-            logger.info("「批量获得旅行奖励结束」当前分钟: {}, 处理用户数: {}", minute, iUsers.size());
+            // 逐个用户执行，相邻两个用户至少间隔3秒
+            BatchRunner runner = new BatchRunner("批量获得旅行奖励", imtExecutor, 1,
+                    new PermitLimiter(1.0 / DELAY_SECONDS_3));
+            BatchReport report = runner.runChecked(iUsers, IUser::getMobile, this::travelRewardAndLog, 0);
+            imtMetrics.recordBatch("travel", report);
+            logger.info("「批量获得旅行奖励结束」当前分钟: {}, 处理用户数: {}, 失败数: {}",
+                    minute, iUsers.size(), report.getFailed());
         } catch (Exception e) {
             logger.error("「批量获得旅行奖励异常」", e);
         }
@@ -572,9 +891,50 @@ public class IMTServiceImpl implements IMTService {
 
     @Override
     public void refreshAll() {
-        refreshMTVersion();
+        // 预取的请求依赖版本号、场次和门店数据
+        reservationPrefetcher.clear();
+        refreshVersion();
         iShopService.refreshShop();
         iShopService.refreshItem();
+        // 只有主节点执行刷新，其他节点据此丢弃旧版本号的请求头和预取请求
+        notifyRefreshed();
+        preloadInventories();
+    }
+
+    @Override
+    public void preloadInventories() {
+        IMTProperties.Warmup config = imtProperties.getWarmup();
+        if (!config.isInventoryEnabled()) {
+            return;
+        }
+        // 只加载实际有用户预约、且本场次在售的省份和商品
+        Set<String> onSale = iShopService.selectItemList().stream()
+                .map(IItem::getItemCode).collect(Collectors.toSet());
+        Set<String> pairs = new LinkedHashSet<>();
+        for (IUser iUser : iUserService.selectReservationUser()) {
+            if (StringUtils.isEmpty(iUser.getProvinceName()) || StringUtils.isEmpty(iUser.getItemCode())) {
+                continue;
+            }
+            for (String itemId : iUser.getItemCode().split("@")) {
+                if (onSale.isEmpty() || onSale.contains(itemId)) {
+                    pairs.add(iUser.getProvinceName() + "@" + itemId);
+                }
+            }
+        }
+        if (pairs.isEmpty()) {
+            logger.info("「预加载门店库存」无预约用户");
+            return;
+        }
+
+        BatchRunner runner = new BatchRunner("预加载门店库存", imtItemExecutor,
+                config.getInventoryConcurrency(), null);
+        BatchReport report = runner.run(new ArrayList<>(pairs), pair -> pair, pair -> {
+            String[] split = pair.split("@");
+            iShopService.getShopsByProvince(split[0], split[1]);
+        }, TimeUnit.SECONDS.toMillis(config.getInventoryWindowSeconds()));
+        imtMetrics.recordBatch("inventory", report);
+        logger.info("「预加载门店库存完成」省份商品数: {}, 成功: {}, 失败: {}, 跳过: {}, 耗时: {}ms",
+                pairs.size(), report.getSuccess(), report.getFailed(), report.getSkipped(), report.getElapsedMillis());
     }
 
     @Override
@@ -586,57 +946,126 @@ public class IMTServiceImpl implements IMTService {
             logger.info("「申购结果查询」无待查询用户");
             return;
         }
+
+        // 只查询今天提交过预约的用户；没有当天记录（如记录功能上线前、Redis数据丢失）时查询全部用户
+        String reservedKey = reservedKey(new Date());
+        if (Boolean.TRUE.equals(redisCache.hasKey(reservedKey))) {
+            Set<String> reserved = redisCache.getCacheSet(reservedKey);
+            iUsers = iUsers.stream()
+                    .filter(iUser -> reserved.contains(String.valueOf(iUser.getMobile())))
+                    .collect(Collectors.toList());
+        } else {
+            logger.warn("「申购结果查询」无当日预约记录，查询全部用户");
+        }
+        iUsers = clusterPartitioner.owned("results:" + DateUtil.format(new Date(), "yyyyMMdd"),
+                iUsers, IUser::getMobile);
         
         logger.info("「申购结果查询」待查询用户数: {}", iUsers.size());
-        
+
+        AtomicInteger successCount = new AtomicInteger();
+        BatchRunner runner = new BatchRunner("申购结果查询", imtExecutor,
+                imtProperties.getReservation().getResultsConcurrency(), null);
+        BatchReport report = runner.run(iUsers, IUser::getMobile,
+                iUser -> successCount.addAndGet(appointmentResult(iUser)), 0);
+        imtMetrics.recordBatch("results", report);
+        logger.info("「申购结果查询结束」总用户数: {}, 申购成功数: {}, 查询失败数: {}, {}",
+            iUsers.size(), successCount.get(), report.getFailed(), report);
+    }
+
+    /**
+     * 查询单个用户的申购结果，并记录申购成功的商品
+     *
+     * @param iUser 用户信息
+     * @return 近24小时申购成功的商品数
+     */
+    private int appointmentResult(IUser iUser) {
+        String url = "https://app.moutai519.com.cn/xhr/front/mall/reservation/list/pageOne/query";
+        String body = imtHttpClient.get(url, appTemplate().with("MT-Device-ID", iUser.getDeviceId(), "MT-Token", iUser.getToken()));
+        logger.debug("「查询申购结果」mobile: {}, response: {}", iUser.getMobile(), body);
+        List<IMTReservationItem> items;
+        try {
+            items = parseReservationItems(body);
+        } catch (ServiceException e) {
+            logger.warn("「查询申购结果失败」mobile: {}, message: {}", iUser.getMobile(), e.getMessage());
+            throw e;
+        }
+        if (Objects.isNull(items) || items.isEmpty()) {
+            logger.debug("「申购记录为空」mobile: {}", iUser.getMobile());
+            return 0;
+        }
+
         int successCount = 0;
-        int failCount = 0;
-        
-        for (IUser iUser : iUsers) {
-            try {
-                String url = "https://app.moutai519.com.cn/xhr/front/mall/reservation/list/pageOne/query";
-                HttpRequest request = HttpUtil.createRequest(Method.GET, url);
-                setCommonHeaders(request, iUser.getDeviceId());
-                request.header("MT-Token", iUser.getToken());
-                
-                String body = request.execute().body();
-                JSONObject jsonObject = JSONObject.parseObject(body);
-                logger.debug("「查询申购结果」mobile: {}, response: {}", iUser.getMobile(), body);
-                
-                if (jsonObject.getInteger("code") != SUCCESS_CODE_2000) {
-                    String message = jsonObject.getString("message");
-                    logger.warn("「查询申购结果失败」mobile: {}, message: {}", iUser.getMobile(), message);
-                    failCount++;
-                    continue;
-                }
-                
-                JSONArray itemVOs = jsonObject.getJSONObject("data").getJSONArray("reservationItemVOS");
-                if (Objects.isNull(itemVOs) || itemVOs.isEmpty()) {
-                    logger.debug("「申购记录为空」mobile: {}", iUser.getMobile());
-                    continue;
-                }
-                
-                for (Object itemVO : itemVOs) {
-                    JSONObject item = JSON.parseObject(itemVO.toString());
-                    if (item.getInteger("status") == RESERVATION_STATUS_SUCCESS 
-                            && DateUtil.between(item.getDate("reservationTime"), new Date(), DateUnit.HOUR) < HOURS_24) {
-                        String logContent = String.format("%s 申购%s成功", 
-                            DateUtil.formatDate(item.getDate("reservationTime")), 
-                            item.getString("itemName"));
-                        IMTLogFactory.reservation(iUser, logContent);
-                        logger.info("「申购成功」mobile: {}, itemName: {}, reservationTime: {}", 
-                            iUser.getMobile(), item.getString("itemName"), 
-                            DateUtil.formatDate(item.getDate("reservationTime")));
-                        successCount++;
-                    }
-                }
-            } catch (Exception e) {
-                logger.error("「查询申购结果异常」mobile: {}", iUser.getMobile(), e);
-                failCount++;
+        Date now = new Date();
+        for (IMTReservationItem item : items) {
+            if (item.getStatus() != null && item.getStatus() == RESERVATION_STATUS_SUCCESS
+                    && item.getReservationTime() != null
+                    && DateUtil.between(item.getReservationTime(), now, DateUnit.HOUR) < HOURS_24) {
+                String reservationDate = DateUtil.formatDate(item.getReservationTime());
+                IMTLogFactory.reservation(iUser, String.format("%s 申购%s成功", reservationDate, item.getItemName()));
+                logger.info("「申购成功」mobile: {}, itemName: {}, reservationTime: {}", 
+                    iUser.getMobile(), item.getItemName(), reservationDate);
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    /**
+     * 解析申购记录响应
+     *
+     * @param body 响应内容
+     * @return 申购记录，可能为空
+     * @throws ServiceException 返回码不是2000
+     */
+    public static List<IMTReservationItem> parseReservationItems(String body) {
+        JSONObject jsonObject = JSONObject.parseObject(body);
+        if (jsonObject.getInteger("code") != SUCCESS_CODE_2000) {
+            String message = jsonObject.getString("message");
+            throw new ServiceException(StringUtils.isNotEmpty(message) ? message : "查询申购结果失败");
+        }
+        return jsonObject.getJSONObject("data").getList("reservationItemVOS", IMTReservationItem.class);
+    }
+
+    /**
+     * 记录用户当日已提交预约，供申购结果查询筛选
+     */
+    private void markReserved(IUser iUser) {
+        try {
+            String key = reservedKey(new Date());
+            redisCache.addCacheSet(key, String.valueOf(iUser.getMobile()), 2, TimeUnit.DAYS);
+        } catch (Exception e) {
+            logger.warn("「记录预约用户失败」mobile: {}", iUser.getMobile(), e);
+        }
+    }
+
+    /**
+     * 队列任务中已预约成功的商品
+     */
+    private Set<String> reservationDone(QueueTask task) {
+        Set<String> done = redisCache.getCacheSet(REDIS_KEY_RESERVATION_DONE + task.key());
+        return done == null ? Collections.emptySet() : done;
+    }
+
+    /**
+     * 记录队列任务中预约成功的商品，保留到任务过期；记录失败时重新投递会再次发送这些商品
+     */
+    private void markReservationDone(QueueTask task, Set<String> itemIds) {
+        String key = REDIS_KEY_RESERVATION_DONE + task.key();
+        long ttlMillis = Math.max(TimeUnit.MINUTES.toMillis(1), task.getExpireAt() - System.currentTimeMillis());
+        try {
+            for (String itemId : itemIds) {
+                redisCache.addCacheSet(key, itemId, ttlMillis, TimeUnit.MILLISECONDS);
             }
+        } catch (Exception e) {
+            logger.warn("「记录预约成功商品失败」任务: {}, itemIds: {}", task, itemIds, e);
         }
-        logger.info("「申购结果查询结束」总用户数: {}, 成功数: {}, 失败数: {}", 
-            iUsers.size(), successCount, failCount);
+    }
+
+    /**
+     * 当日提交过预约的用户集合
+     */
+    private static String reservedKey(Date date) {
+        return REDIS_KEY_RESERVED + DateUtil.format(date, "yyyyMMdd");
     }
 
     /**
@@ -648,6 +1077,32 @@ public class IMTServiceImpl implements IMTService {
      * @return 预约结果
      */
     public JSONObject reservation(IUser iUser, String itemId, String shopId) {
+        return sendReservation(buildReservation(iUser, itemId, shopId));
+    }
+
+    /**
+     * 构建预约请求：选择门店，加密参数，生成请求头
+     *
+     * @param iUser  用户信息
+     * @param itemId 商品ID
+     * @return 可直接发送的预约请求
+     */
+    private PreparedReservation prepareReservation(IUser iUser, String itemId) {
+        String shopId = iShopService.getShopId(iUser.getShopType(), itemId,
+                iUser.getProvinceName(), iUser.getCityName(), iUser.getLat(), iUser.getLng());
+        return buildReservation(iUser, itemId, shopId);
+    }
+
+    private PreparedReservation buildReservation(IUser iUser, String itemId, String shopId) {
+        String body = reservationBody(iUser, itemId, iShopService.getCurrentSessionId(), shopId);
+        HeaderTemplate headers = reservationHeaders(appTemplate(), iUser);
+        return new PreparedReservation(iUser, itemId, shopId, body, headers);
+    }
+
+    /**
+     * 预约请求体（已包含加密的actParam）
+     */
+    public static String reservationBody(IUser iUser, String itemId, String sessionId, String shopId) {
         Map<String, Object> map = new HashMap<>();
         JSONArray itemArray = new JSONArray();
         Map<String, Object> info = new HashMap<>();
@@ -656,33 +1111,51 @@ public class IMTServiceImpl implements IMTService {
         itemArray.add(info);
 
         map.put("itemInfoList", itemArray);
-        map.put("sessionId", iShopService.getCurrentSessionId());
+        map.put("sessionId", sessionId);
         map.put("userId", iUser.getUserId().toString());
         map.put("shopId", shopId);
         map.put("actParam", AesEncrypt(JSON.toJSONString(map)));
+        return JSONObject.toJSONString(map);
+    }
 
-        HttpRequest request = HttpUtil.createRequest(Method.POST,
-                "https://app.moutai519.com.cn/xhr/front/mall/reservation/add");
-        setCommonHeaders(request, iUser.getDeviceId());
-        request.header("MT-Lat", iUser.getLat());
-        request.header("MT-Lng", iUser.getLng());
-        request.header("MT-Token", iUser.getToken());
-        request.header("MT-Info", MT_INFO_HEADER);
-        request.header("Content-Type", CONTENT_TYPE_JSON);
-        request.header("userId", iUser.getUserId().toString());
-
-        HttpResponse execute = request.body(JSONObject.toJSONString(map)).execute();
-        JSONObject body = JSONObject.parseObject(execute.body());
+    /**
+     * 预约请求头
+     *
+     * @param template App接口公共请求头模板
+     * @param iUser    用户信息
+     */
+    public static HeaderTemplate reservationHeaders(HeaderTemplate template, IUser iUser) {
+        return template.with(
+                "MT-Device-ID", iUser.getDeviceId(),
+                "MT-Lat", iUser.getLat(),
+                "MT-Lng", iUser.getLng(),
+                "MT-Token", iUser.getToken(),
+                "MT-Info", MT_INFO_HEADER,
+                "Content-Type", CONTENT_TYPE_JSON,
+                "userId", iUser.getUserId().toString());
+    }
+
+    /**
+     * 发送预约请求
+     *
+     * @param request 预约请求
+     * @return 预约结果
+     */
+    private JSONObject sendReservation(PreparedReservation request) {
+        IUser iUser = request.getUser();
+        String res = imtHttpClient.post("https://app.moutai519.com.cn/xhr/front/mall/reservation/add",
+                request.getHeaders(), request.getBody());
+        JSONObject body = JSONObject.parseObject(res);
         
         if (body.getInteger("code") != SUCCESS_CODE_2000) {
             String message = body.getString("message");
             logger.error("「预约商品失败」mobile: {}, itemId: {}, shopId: {}, response: {}", 
-                iUser.getMobile(), itemId, shopId, body.toJSONString());
+                iUser.getMobile(), request.getItemId(), request.getShopId(), body.toJSONString());
             throw new ServiceException(StringUtils.isNotEmpty(message) ? message : "预约商品失败");
         }
         
         logger.info("「预约商品成功」mobile: {}, itemId: {}, shopId: {}", 
-            iUser.getMobile(), itemId, shopId);
+            iUser.getMobile(), request.getItemId(), request.getShopId());
         return body;
     }
 
@@ -693,8 +1166,7 @@ public class IMTServiceImpl implements IMTService {
      * @return 加密后的Base64字符串
      */
     public static String AesEncrypt(String params) {
-        AES aes = new AES(Mode.CBC, Padding.PKCS5Padding, AES_KEY.getBytes(), AES_IV.getBytes());
-        return aes.encryptBase64(params);
+        return IMTCrypto.aesEncrypt(params);
     }
 
     /**
@@ -704,8 +1176,7 @@ public class IMTServiceImpl implements IMTService {
      * @return 解密后的字符串
      */
     public static String AesDecrypt(String params) {
-        AES aes = new AES(Mode.CBC, Padding.PKCS5Padding, AES_KEY.getBytes(), AES_IV.getBytes());
-        return aes.decryptStr(params);
+        return IMTCrypto.aesDecrypt(params);
     }
 
     /**
@@ -718,54 +1189,51 @@ public class IMTServiceImpl implements IMTService {
      * @return MD5签名
      */
     private static String signature(String content, long time) {
-        String text = SALT + content + time;
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hashBytes = md.digest(text.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            logger.error("MD5签名失败", e);
-            throw new ServiceException("签名生成失败");
-        }
+        return IMTCrypto.signature(content, time);
     }
 
     /**
-     * 设置通用请求头（App接口）
-     *
-     * @param request HTTP请求
-     * @param deviceId 设备ID
+     * App接口公共请求头模板，版本号变化时重新构建
      */
-    private void setCommonHeaders(HttpRequest request, String deviceId) {
-        request.header("MT-Device-ID", deviceId);
-        request.header("MT-APP-Version", getMTVersion());
-        request.header("User-Agent", USER_AGENT);
+    private HeaderTemplate appTemplate() {
+        HeaderTemplate template = appTemplate;
+        if (template == null) {
+            String mtVersion = getMTVersion();
+            template = HeaderTemplate.of(
+                    "MT-APP-Version", mtVersion,
+                    "User-Agent", USER_AGENT);
+            if (StringUtils.isNotEmpty(mtVersion)) {
+                appTemplate = template;
+            }
+        }
+        return template;
     }
 
     /**
-     * 设置Wap请求头（包含位置信息）
+     * Wap请求头（包含位置信息）
      *
-     * @param request HTTP请求
      * @param iUser 用户信息
      */
-    private void setWapHeaders(HttpRequest request, IUser iUser) {
-        setCommonHeaders(request, iUser.getDeviceId());
-        request.header("MT-Lat", iUser.getLat());
-        request.header("MT-Lng", iUser.getLng());
-        request.cookie("MT-Token-Wap=" + iUser.getCookie() + ";MT-Device-ID-Wap=" + iUser.getDeviceId() + ";");
+    private HeaderTemplate wapHeaders(IUser iUser) {
+        return appTemplate().with(
+                "MT-Device-ID", iUser.getDeviceId(),
+                "Cookie", wapCookie(iUser),
+                "MT-Lat", iUser.getLat(),
+                "MT-Lng", iUser.getLng());
     }
 
     /**
-     * 设置Wap请求头（不包含位置信息）
+     * Wap请求头（不包含位置信息）
      *
-     * @param request HTTP请求
      * @param iUser 用户信息
      */
-    private void setWapHeadersWithoutLocation(HttpRequest request, IUser iUser) {
-        setCommonHeaders(request, iUser.getDeviceId());
-        request.cookie("MT-Token-Wap=" + iUser.getCookie() + ";MT-Device-ID-Wap=" + iUser.getDeviceId() + ";");
+    private HeaderTemplate wapHeadersWithoutLocation(IUser iUser) {
+        return appTemplate().with(
+                "MT-Device-ID", iUser.getDeviceId(),
+                "Cookie", wapCookie(iUser));
+    }
+
+    private static String wapCookie(IUser iUser) {
+        return "MT-Token-Wap=" + iUser.getCookie() + ";MT-Device-ID-Wap=" + iUser.getDeviceId() + ";";
     }
 }
@@ -1,34 +1,56 @@
 package com.oddfar.campus.business.service.impl;
 
 import cn.hutool.core.convert.Convert;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONException;
 import com.alibaba.fastjson2.JSONObject;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.oddfar.campus.business.cache.ItemCatalog;
+import com.oddfar.campus.business.cache.ShopCandidates;
+import com.oddfar.campus.business.cache.ShopSnapshot;
+import com.oddfar.campus.business.cache.SingleFlight;
 import com.oddfar.campus.business.domain.IMTItemInfo;
 import com.oddfar.campus.business.domain.MapPoint;
 import com.oddfar.campus.business.entity.IItem;
 import com.oddfar.campus.business.entity.IShop;
+import com.oddfar.campus.business.http.IMTHttpClient;
 import com.oddfar.campus.business.mapper.IItemMapper;
 import com.oddfar.campus.business.mapper.IShopMapper;
 import com.oddfar.campus.business.service.IShopService;
+import com.oddfar.campus.business.utils.IMTCrypto;
 import com.oddfar.campus.common.core.RedisCache;
 import com.oddfar.campus.common.exception.ServiceException;
 import com.oddfar.campus.common.utils.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -45,30 +67,189 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
     @Autowired
     RedisCache redisCache;
 
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    IMTHttpClient imtHttpClient;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("imtRefreshExecutor")
+    Executor imtRefreshExecutor;
+
+    private static final String SHOP_LIST_KEY = "mt_shop_list";
+
+    private static final String SHOP_LIST_TMP_KEY = "mt_shop_list:tmp";
+
+    /**
+     * 门店版本号，每次门店变化后自增
+     */
+    private static final String SHOP_VERSION_KEY = "mt_shop_version";
+
+    /**
+     * 上次刷新的门店资源摘要
+     */
+    private static final String SHOP_DIGEST_KEY = "mt_shop_digest";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 投放门店在Redis中的缓存时间（分钟）
+     */
+    private static final long PROVINCE_CACHE_MINUTES = 60;
+
+    /**
+     * 投放门店缓存剩余时间低于该值（秒）时提前刷新
+     */
+    private static final long PROVINCE_REFRESH_AHEAD_SECONDS = 300;
+
+    /**
+     * 投放门店加载合并，避免同一省份同一商品同时请求上游
+     */
+    private final SingleFlight<String, List<IMTItemInfo>> provinceFlight = new SingleFlight<>();
+
+    /**
+     * 投放门店加载锁，同一个键全集群只有一个节点请求上游，其余节点等待它写入的缓存
+     */
+    private static final String PROVINCE_LOCK_KEY = "mt_province_lock:";
+
+    /**
+     * 加载锁有效期（毫秒），不短于一次上游请求的连接和读取超时之和
+     */
+    private static final long PROVINCE_LOCK_MILLIS = 20000;
+
+    /**
+     * 等待其他节点加载时轮询缓存的间隔（毫秒）
+     */
+    private static final long PROVINCE_LOCK_POLL_MILLIS = 50;
+
+    /**
+     * 仍由本次加载持有时释放加载锁
+     */
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then\n" +
+                    "    return redis.call('del', KEYS[1])\n" +
+                    "end\n" +
+                    "return 0", Long.class);
+
+    /**
+     * 可预约门店的本地缓存时间
+     */
+    private static final long CANDIDATES_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * 本地门店快照，门店列表刷新后整体替换
+     */
+    private volatile ShopSnapshot shopSnapshot = ShopSnapshot.EMPTY;
+
+    /**
+     * 当前场次的预约商品目录
+     */
+    private volatile ItemCatalog itemCatalog = ItemCatalog.EMPTY;
+
+    /**
+     * 场次.省份.商品 -> 可预约门店
+     */
+    private final Map<String, ShopCandidates> shopCandidates = new ConcurrentHashMap<>();
+
     @Override
     public List<IShop> selectShopList() {
-        List<IShop> shopList = redisCache.getCacheList("mt_shop_list");
+        return shopSnapshot().shops();
+    }
+
+    /**
+     * 获取本地门店快照，尚未加载时从Redis加载
+     */
+    private ShopSnapshot shopSnapshot() {
+        ShopSnapshot snapshot = shopSnapshot;
+        if (snapshot.isEmpty()) {
+            synchronized (this) {
+                snapshot = shopSnapshot;
+                if (snapshot.isEmpty()) {
+                    snapshot = loadShopSnapshot();
+                }
+            }
+        }
+        return snapshot;
+    }
 
+    private ShopSnapshot loadShopSnapshot() {
+        long version = currentShopVersion();
+        List<IShop> shopList = redisCache.getCacheList(SHOP_LIST_KEY);
         if (shopList != null && !shopList.isEmpty()) {
-            logger.debug("从缓存获取门店列表，数量: {}", shopList.size());
-            return shopList;
+            logger.info("从缓存加载门店快照，版本: {}, 数量: {}", version, shopList.size());
+            return publishSnapshot(version, shopList);
         }
 
         logger.info("缓存中无门店列表，开始刷新");
         refreshShop();
+        if (!shopSnapshot.isEmpty()) {
+            return shopSnapshot;
+        }
         shopList = iShopMapper.selectList();
         logger.info("获取门店列表完成，数量: {}", shopList != null ? shopList.size() : 0);
-        return shopList;
+        return shopList == null ? ShopSnapshot.EMPTY : publishSnapshot(version, shopList);
+    }
+
+    @Override
+    public void reloadShopSnapshot(long version) {
+        if (version <= shopSnapshot.getVersion()) {
+            return;
+        }
+        List<IShop> shopList = redisCache.getCacheList(SHOP_LIST_KEY);
+        if (shopList == null || shopList.isEmpty()) {
+            logger.warn("收到门店刷新通知，但缓存中无门店列表，版本: {}", version);
+            return;
+        }
+        publishSnapshot(version, shopList);
+        logger.info("门店快照已更新，版本: {}, 数量: {}", version, shopList.size());
+    }
+
+    /**
+     * 定时比对Redis中的门店版本，补上错过的门店刷新通知
+     * <p>
+     * 发布订阅不保证送达，断线重连或停顿期间错过通知的节点靠这里追上新版本；尚未加载快照时不处理，首次访问会直接加载
+     */
+    @Scheduled(fixedDelayString = "${imt.cluster.heartbeatMillis:5000}")
+    public void checkShopVersion() {
+        if (shopSnapshot.isEmpty()) {
+            return;
+        }
+        try {
+            long version = currentShopVersion();
+            if (version > shopSnapshot.getVersion()) {
+                logger.info("本地门店快照落后，版本: {} -> {}", shopSnapshot.getVersion(), version);
+                reloadShopSnapshot(version);
+            }
+        } catch (Exception e) {
+            logger.warn("检查门店版本失败", e);
+        }
+    }
+
+    private long currentShopVersion() {
+        Long version = Convert.toLong(redisCache.getCacheObject(SHOP_VERSION_KEY));
+        return version == null ? 0L : version;
+    }
+
+    /**
+     * 替换本地门店快照，依赖门店信息的可预约门店全部作废
+     */
+    private synchronized ShopSnapshot publishSnapshot(long version, List<IShop> list) {
+        ShopSnapshot snapshot = ShopSnapshot.of(version, list);
+        shopSnapshot = snapshot;
+        shopCandidates.clear();
+        return snapshot;
     }
 
     @Override
     public void refreshShop() {
         try {
             logger.info("开始刷新门店列表");
-            HttpRequest request = HttpUtil.createRequest(Method.GET,
-                    "https://static.moutai519.com.cn/mt-backend/xhr/front/mall/resource/get");
-
-            JSONObject body = JSONObject.parseObject(request.execute().body());
+            JSONObject body = JSONObject.parseObject(
+                    imtHttpClient.get("https://static.moutai519.com.cn/mt-backend/xhr/front/mall/resource/get"));
             //获取shop的url
             JSONObject data = body.getJSONObject("data");
             if (data == null || !data.containsKey("mtshops_pc")) {
@@ -79,38 +260,187 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
                 throw new ServiceException("门店资源URL为空");
             }
             
-            //清空数据库
-            iShopMapper.truncateShop();
-            redisCache.deleteObject("mt_shop_list");
-            logger.debug("已清空门店数据库和缓存");
-
-            String shopData = HttpUtil.get(shopUrl);
-            if (StringUtils.isEmpty(shopData)) {
-                throw new ServiceException("获取门店数据失败，返回为空");
+            //解析的同时计算资源摘要
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            List<IShop> list = imtHttpClient.get(shopUrl, in -> readShops(new DigestInputStream(in, digest)));
+            if (list.isEmpty()) {
+                logger.warn("门店列表为空，未刷新数据");
+                return;
             }
 
-            JSONObject jsonObject = JSONObject.parseObject(shopData);
-            Set<String> shopIdSet = jsonObject.keySet();
-            List<IShop> list = new ArrayList<>();
-            for (String iShopId : shopIdSet) {
-                JSONObject shop = jsonObject.getJSONObject(iShopId);
-                IShop iShop = new IShop(iShopId, shop);
-                list.add(iShop);
-            }
-            
-            if (!list.isEmpty()) {
-                this.saveBatch(list);
-                redisCache.setCacheList("mt_shop_list", list);
-                logger.info("门店列表刷新完成，共{}个门店", list.size());
-            } else {
-                logger.warn("门店列表为空，未刷新数据");
+            //摘要与上次写入的一致时数据库和缓存都已是这份资源，不再读取数据库比对
+            String payloadDigest = IMTCrypto.toHex(digest.digest());
+            if (payloadDigest.equals(redisCache.getCacheObject(SHOP_DIGEST_KEY)) && redisCache.hasKey(SHOP_LIST_KEY)) {
+                if (shopSnapshot.isEmpty()) {
+                    publishSnapshot(currentShopVersion(), redisCache.getCacheList(SHOP_LIST_KEY));
+                }
+                logger.info("门店资源未变化，跳过刷新，共{}个门店", list.size());
+                return;
             }
+
+            //与数据库中的门店逐个比对，只写入变化的门店，在一个事务中完成
+            ShopDiff diff = new ShopDiff(iShopMapper.selectList());
+            list.forEach(diff::accept);
+            List<IShop> removed = diff.removed();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!diff.inserted.isEmpty()) {
+                    this.saveBatch(diff.inserted);
+                }
+                if (!diff.updated.isEmpty()) {
+                    this.updateBatchById(diff.updated);
+                }
+                if (!removed.isEmpty()) {
+                    this.removeByIds(removed.stream().map(IShop::getShopId).collect(Collectors.toList()));
+                }
+            });
+
+            //先写入临时键再重命名，读取方不会看到空的或写了一半的门店列表
+            redisCache.deleteObject(SHOP_LIST_TMP_KEY);
+            redisCache.setCacheList(SHOP_LIST_TMP_KEY, list);
+            redisCache.rename(SHOP_LIST_TMP_KEY, SHOP_LIST_KEY);
+            redisCache.setCacheObject(SHOP_DIGEST_KEY, payloadDigest);
+
+            //更新本地快照后通知其他节点
+            long version = redisCache.increment(SHOP_VERSION_KEY);
+            publishSnapshot(version, list);
+            redisCache.publish(ShopSnapshot.CHANNEL, version);
+            logger.info("门店列表刷新完成，共{}个门店，新增: {}, 修改: {}, 删除: {}",
+                    list.size(), diff.inserted.size(), diff.updated.size(), removed.size());
         } catch (Exception e) {
             logger.error("刷新门店列表失败", e);
             throw new ServiceException("刷新门店列表失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 门店内容摘要，用于判断门店信息是否变化
+     */
+    static String shopHash(IShop iShop) {
+        return IMTCrypto.md5Hex(iShop.getProvinceName() + '\u0001' + iShop.getCityName() + '\u0001'
+                + iShop.getDistrictName() + '\u0001' + iShop.getFullAddress() + '\u0001'
+                + iShop.getLat() + '\u0001' + iShop.getLng() + '\u0001'
+                + iShop.getName() + '\u0001' + iShop.getTenantName());
+    }
+
+    /**
+     * 新旧门店列表的差异
+     * <p>
+     * 解析出的门店沿用数据库中的主键，未变化的门店沿用原创建时间
+     */
+    private static class ShopDiff {
+
+        /**
+         * 门店ID -> 数据库中尚未匹配到的门店
+         */
+        private final Map<String, IShop> existing;
+
+        private final List<IShop> inserted = new ArrayList<>();
+
+        private final List<IShop> updated = new ArrayList<>();
+
+        ShopDiff(List<IShop> current) {
+            existing = new HashMap<>(current.size() * 2);
+            for (IShop iShop : current) {
+                existing.put(iShop.getIShopId(), iShop);
+            }
+        }
+
+        void accept(IShop iShop) {
+            IShop old = existing.remove(iShop.getIShopId());
+            if (old == null) {
+                inserted.add(iShop);
+                return;
+            }
+            iShop.setShopId(old.getShopId());
+            if (shopHash(old).equals(shopHash(iShop))) {
+                iShop.setCreateTime(old.getCreateTime());
+            } else {
+                updated.add(iShop);
+            }
+        }
+
+        /**
+         * 本次门店资源中已不存在的门店
+         */
+        List<IShop> removed() {
+            return new ArrayList<>(existing.values());
+        }
+    }
+
+    /**
+     * 流式解析门店资源
+     * <p>
+     * 门店资源是以门店ID为键的大对象，逐个门店读取字段，不构建响应字符串和完整的JSON树；
+     * 解析出的门店全部保留，用于写入Redis和本地快照
+     *
+     * @param in 门店资源输入流
+     * @return 全部门店
+     */
+    static List<IShop> readShops(InputStream in) throws IOException {
+        List<IShop> list = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ServiceException("门店数据格式错误");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String iShopId = parser.getCurrentName();
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                list.add(readShop(iShopId, parser));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 读取单个门店，与 {@link IShop#IShop(String, JSONObject)} 取相同的字段
+     */
+    private static IShop readShop(String iShopId, JsonParser parser) throws IOException {
+        IShop iShop = new IShop();
+        iShop.setIShopId(iShopId);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            String value = parser.getValueAsString();
+            switch (field) {
+                case "provinceName":
+                    iShop.setProvinceName(value);
+                    break;
+                case "cityName":
+                    iShop.setCityName(value);
+                    break;
+                case "districtName":
+                    iShop.setDistrictName(value);
+                    break;
+                case "fullAddress":
+                    iShop.setFullAddress(value);
+                    break;
+                case "lat":
+                    iShop.setLat(value);
+                    break;
+                case "lng":
+                    iShop.setLng(value);
+                    break;
+                case "name":
+                    iShop.setName(value);
+                    break;
+                case "tenantName":
+                    iShop.setTenantName(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        iShop.setCreateTime(new Date());
+        return iShop;
+    }
+
     @Override
     public String getCurrentSessionId() {
         String mtSessionId = Convert.toStr(redisCache.getCacheObject("mt_session_id"));
@@ -124,7 +454,7 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
             logger.info("缓存中无SessionId，开始获取");
             long dayTime = LocalDate.now().atStartOfDay().toInstant(ZoneOffset.of("+8")).toEpochMilli();
             String url = "https://static.moutai519.com.cn/mt-backend/xhr/front/mall/index/session/get/" + dayTime;
-            String res = HttpUtil.get(url);
+            String res = imtHttpClient.get(url);
             
             if (StringUtils.isEmpty(res)) {
                 throw new ServiceException("获取SessionId失败，响应为空");
@@ -138,20 +468,29 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
                 if (StringUtils.isEmpty(mtSessionId)) {
                     throw new ServiceException("SessionId为空");
                 }
-                redisCache.setCacheObject("mt_session_id", mtSessionId);
-                logger.info("成功获取SessionId: {}", mtSessionId);
 
-                iItemMapper.truncateItem();
-                //item插入数据库
+                List<IItem> items = new ArrayList<>();
                 JSONArray itemList = data.getJSONArray("itemList");
-                if (itemList != null && !itemList.isEmpty()) {
+                if (itemList != null) {
                     for (Object obj : itemList) {
-                        JSONObject item = (JSONObject) obj;
-                        IItem iItem = new IItem(item);
-                        iItemMapper.insert(iItem);
+                        IItem iItem = new IItem((JSONObject) obj);
+                        iItem.setItemId(IdWorker.getId());
+                        items.add(iItem);
                     }
-                    logger.info("商品列表更新完成，共{}个商品", itemList.size());
                 }
+                //item在一个事务中整体替换，提交前查询看到的仍是旧的完整列表
+                transactionTemplate.executeWithoutResult(status -> {
+                    iItemMapper.deleteAllItem();
+                    if (!items.isEmpty()) {
+                        iItemMapper.insertBatch(items);
+                    }
+                });
+                itemCatalog = ItemCatalog.of(mtSessionId, items);
+                logger.info("商品列表更新完成，共{}个商品", items.size());
+
+                //商品写入后再发布SessionId
+                redisCache.setCacheObject("mt_session_id", mtSessionId);
+                logger.info("成功获取SessionId: {}", mtSessionId);
             } else {
                 String message = jsonObject.getString("message");
                 throw new ServiceException(StringUtils.isNotEmpty(message) ? message : "获取SessionId失败");
@@ -164,6 +503,18 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
         return mtSessionId;
     }
 
+    @Override
+    public List<IItem> selectItemList() {
+        String sessionId = getCurrentSessionId();
+        ItemCatalog catalog = itemCatalog;
+        if (!sessionId.equals(catalog.getSessionId())) {
+            //由其他节点获取的场次，从数据库加载一次
+            catalog = ItemCatalog.of(sessionId, iItemMapper.selectList());
+            itemCatalog = catalog;
+        }
+        return catalog.items();
+    }
+
     @Override
     public void refreshItem() {
         redisCache.deleteObject("mt_session_id");
@@ -176,6 +527,11 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
             logger.warn("查询门店时shopId为空");
             return null;
         }
+        IShop iShop = shopSnapshot().get(iShopId);
+        if (iShop != null) {
+            return iShop;
+        }
+        //快照中没有时再查询数据库
         List<IShop> iShopList = iShopMapper.selectList("i_shop_id", iShopId);
         if (iShopList != null && !iShopList.isEmpty()) {
             return iShopList.get(0);
@@ -189,15 +545,98 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
         String key = "mt_province:" + province + "." + getCurrentSessionId() + "." + itemId;
         List<IMTItemInfo> cacheList = redisCache.getCacheList(key);
         if (cacheList != null && cacheList.size() > 0) {
+            long ttl = redisCache.getExpire(key);
+            if (ttl >= 0 && ttl < PROVINCE_REFRESH_AHEAD_SECONDS) {
+                //即将过期，后台提前刷新，本次仍返回缓存；刷新线程繁忙时放弃，由之后的请求再次触发
+                try {
+                    provinceFlight.executeAsync(key, () -> refreshShopsByProvince(key, province, itemId), imtRefreshExecutor);
+                } catch (RejectedExecutionException e) {
+                    logger.debug("提前刷新投放门店繁忙，跳过: {}", key);
+                }
+            }
             return cacheList;
-        } else {
-            List<IMTItemInfo> imtItemInfoList = reGetShopsByProvince(province, itemId);
-            redisCache.reSetCacheList(key, imtItemInfoList);
-            redisCache.expire(key, 60, TimeUnit.MINUTES);
-            return imtItemInfoList;
+        }
+        //同一个键本节点只有一个线程加载，节点之间再由加载锁合并，全集群只请求一次上游
+        return provinceFlight.execute(key, () -> loadShopsByProvince(key, province, itemId));
+    }
+
+    /**
+     * 缓存缺失时加载投放门店
+     * <p>
+     * 拿到加载锁的节点请求上游并写入缓存，其余节点轮询缓存直到写入；
+     * 持锁节点加载失败释放锁后由等待的节点接着加锁加载，等待超过锁有效期时直接请求上游
+     */
+    private List<IMTItemInfo> loadShopsByProvince(String key, String province, String itemId) {
+        String lockKey = PROVINCE_LOCK_KEY + key;
+        String owner = UUID.randomUUID().toString();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROVINCE_LOCK_MILLIS);
+        while (true) {
+            List<IMTItemInfo> cacheList = redisCache.getCacheList(key);
+            if (cacheList != null && cacheList.size() > 0) {
+                return cacheList;
+            }
+            if (tryLock(lockKey, owner)) {
+                try {
+                    return fetchShopsByProvince(key, province, itemId);
+                } finally {
+                    unlock(lockKey, owner);
+                }
+            }
+            if (System.nanoTime() - deadline > 0) {
+                logger.warn("等待其他节点加载投放门店超时，直接请求上游: {}", key);
+                return fetchShopsByProvince(key, province, itemId);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(PROVINCE_LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceException("等待投放门店加载被中断");
+            }
+        }
+    }
+
+    /**
+     * 提前刷新投放门店
+     * <p>
+     * 其他节点正在刷新、或加锁前已经刷新过时不再请求上游，返回当前缓存
+     */
+    private List<IMTItemInfo> refreshShopsByProvince(String key, String province, String itemId) {
+        String lockKey = PROVINCE_LOCK_KEY + key;
+        String owner = UUID.randomUUID().toString();
+        if (!tryLock(lockKey, owner)) {
+            return redisCache.getCacheList(key);
+        }
+        try {
+            if (redisCache.getExpire(key) >= PROVINCE_REFRESH_AHEAD_SECONDS) {
+                return redisCache.getCacheList(key);
+            }
+            return fetchShopsByProvince(key, province, itemId);
+        } finally {
+            unlock(lockKey, owner);
+        }
+    }
+
+    private boolean tryLock(String lockKey, String owner) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(lockKey, owner, PROVINCE_LOCK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private void unlock(String lockKey, String owner) {
+        try {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), owner);
+        } catch (Exception e) {
+            // 释放失败时等待锁自然过期
+            logger.warn("释放投放门店加载锁失败: {}", lockKey, e);
         }
     }
 
+    private List<IMTItemInfo> fetchShopsByProvince(String key, String province, String itemId) {
+        List<IMTItemInfo> imtItemInfoList = reGetShopsByProvince(province, itemId);
+        redisCache.reSetCacheList(key, imtItemInfoList);
+        redisCache.expire(key, PROVINCE_CACHE_MINUTES, TimeUnit.MINUTES);
+        return imtItemInfoList;
+    }
+
     public List<IMTItemInfo> reGetShopsByProvince(String province, String itemId) {
         if (StringUtils.isEmpty(province) || StringUtils.isEmpty(itemId)) {
             logger.warn("查询门店时参数为空，province: {}, itemId: {}", province, itemId);
@@ -211,52 +650,13 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
                 + sessionId + "/" + province + "/" + itemId + "/" + dayTime;
 
             logger.debug("查询省市门店，province: {}, itemId: {}", province, itemId);
-            String urlRes = HttpUtil.get(url);
+            String urlRes = imtHttpClient.get(url);
             
             if (StringUtils.isEmpty(urlRes)) {
                 throw new ServiceException("查询门店数据失败，响应为空");
             }
             
-            JSONObject res = JSONObject.parseObject(urlRes);
-
-            if (!res.containsKey("code") || !"2000".equals(res.getString("code"))) {
-                String message = res.getString("message");
-                logger.error("查询门店失败，province: {}, itemId: {}, response: {}", province, itemId, urlRes);
-                throw new ServiceException(StringUtils.isNotEmpty(message) ? message : "查询门店失败");
-            }
-            
-            //组合信息
-            List<IMTItemInfo> imtItemInfoList = new ArrayList<>();
-            JSONObject data = res.getJSONObject("data");
-            if (data == null || !data.containsKey("shops")) {
-                logger.warn("门店数据为空，province: {}, itemId: {}", province, itemId);
-                return imtItemInfoList;
-            }
-            
-            JSONArray shopList = data.getJSONArray("shops");
-            if (shopList == null || shopList.isEmpty()) {
-                logger.debug("门店列表为空，province: {}, itemId: {}", province, itemId);
-                return imtItemInfoList;
-            }
-
-            for (Object obj : shopList) {
-                JSONObject shops = (JSONObject) obj;
-                JSONArray items = shops.getJSONArray("items");
-                if (items == null || items.isEmpty()) {
-                    continue;
-                }
-                
-                for (Object item : items) {
-                    JSONObject itemObj = (JSONObject) item;
-                    if (itemId.equals(itemObj.getString("itemId"))) {
-                        IMTItemInfo iItem = new IMTItemInfo(shops.getString("shopId"),
-                                itemObj.getIntValue("count"), itemObj.getString("itemId"), 
-                                itemObj.getIntValue("inventory"));
-                        imtItemInfoList.add(iItem);
-                    }
-                }
-            }
-            
+            List<IMTItemInfo> imtItemInfoList = parseShopsByProvince(urlRes, province, itemId);
             logger.info("查询门店完成，province: {}, itemId: {}, 门店数: {}", province, itemId, imtItemInfoList.size());
             return imtItemInfoList;
         } catch (JSONException e) {
@@ -268,35 +668,76 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
         }
     }
 
+    /**
+     * 解析投放门店响应，只保留指定商品
+     *
+     * @param body     响应内容
+     * @param province 省份，用于日志
+     * @param itemId   商品ID
+     * @return 投放门店及库存，没有门店时返回空列表
+     * @throws ServiceException 返回码不是2000
+     */
+    public static List<IMTItemInfo> parseShopsByProvince(String body, String province, String itemId) {
+        JSONObject res = JSONObject.parseObject(body);
+
+        if (!res.containsKey("code") || !"2000".equals(res.getString("code"))) {
+            String message = res.getString("message");
+            logger.error("查询门店失败，province: {}, itemId: {}, response: {}", province, itemId, body);
+            throw new ServiceException(StringUtils.isNotEmpty(message) ? message : "查询门店失败");
+        }
+
+        //组合信息
+        List<IMTItemInfo> imtItemInfoList = new ArrayList<>();
+        JSONObject data = res.getJSONObject("data");
+        if (data == null || !data.containsKey("shops")) {
+            logger.warn("门店数据为空，province: {}, itemId: {}", province, itemId);
+            return imtItemInfoList;
+        }
+
+        JSONArray shopList = data.getJSONArray("shops");
+        if (shopList == null || shopList.isEmpty()) {
+            logger.debug("门店列表为空，province: {}, itemId: {}", province, itemId);
+            return imtItemInfoList;
+        }
+
+        for (Object obj : shopList) {
+            JSONObject shops = (JSONObject) obj;
+            JSONArray items = shops.getJSONArray("items");
+            if (items == null || items.isEmpty()) {
+                continue;
+            }
+
+            for (Object item : items) {
+                JSONObject itemObj = (JSONObject) item;
+                if (itemId.equals(itemObj.getString("itemId"))) {
+                    IMTItemInfo iItem = new IMTItemInfo(shops.getString("shopId"),
+                            itemObj.getIntValue("count"), itemObj.getString("itemId"),
+                            itemObj.getIntValue("inventory"));
+                    imtItemInfoList.add(iItem);
+                }
+            }
+        }
+        return imtItemInfoList;
+    }
+
     @Override
     public String getShopId(int shopType, String itemId, String province, String city, String lat, String lng) {
-        //查询所在省市的投放产品和数量
-        List<IMTItemInfo> shopList = getShopsByProvince(province, itemId);
-        //取id集合
-        List<String> shopIdList = shopList.stream().map(IMTItemInfo::getShopId).collect(Collectors.toList());
-        //获取门店列表
-        List<IShop> iShops = selectShopList();
-        //获取今日的门店信息列表
-        List<IShop> list = iShops.stream().filter(i -> shopIdList.contains(i.getIShopId())).collect(Collectors.toList());
+        //所在省市的可预约门店，同省同商品的用户共享
+        ShopCandidates candidates = getShopCandidates(province, itemId);
 
         String shopId = "";
         if (shopType == 1) {
             //预约本市出货量最大的门店
-            shopId = getMaxInventoryShopId(shopList, list, city);
+            shopId = candidates.maxInventoryShopId(city);
             if (StringUtils.isEmpty(shopId)) {
                 //本市没有则预约本省最近的
-                shopId = getMinDistanceShopId(list, province, lat, lng);
+                shopId = candidates.nearestShopId(Double.parseDouble(lat), Double.parseDouble(lng));
             }
         } else {
             //预约本省距离最近的门店
-            shopId = getMinDistanceShopId(list, province, lat, lng);
+            shopId = candidates.nearestShopId(Double.parseDouble(lat), Double.parseDouble(lng));
         }
 
-//        if (shopType == 2) {
-//            // 预约本省距离最近的门店
-//            shopId = getMinDistanceShopId(list, province, lat, lng);
-//        }
-
         if (StringUtils.isEmpty(shopId)) {
             throw new ServiceException("申购时根据类型获取的门店商品id为空");
         }
@@ -306,54 +747,18 @@ public class IShopServiceImpl extends ServiceImpl<IShopMapper, IShop> implements
     }
 
     /**
-     * 预约本市出货量最大的门店
-     *
-     * @param list1
-     * @param list2
-     * @param city
-     * @return
+     * 获取某省某商品的可预约门店
+     * <p>
+     * 本地缓存的时间远小于投放门店在Redis中的缓存时间，库存变化能及时反映
      */
-    public String getMaxInventoryShopId(List<IMTItemInfo> list1, List<IShop> list2, String city) {
-
-        //本城市的shopId集合
-        List<String> cityShopIdList = list2.stream().filter(iShop -> iShop.getCityName().contains(city))
-                .map(IShop::getIShopId).collect(Collectors.toList());
-
-        List<IMTItemInfo> collect = list1.stream().filter(i -> cityShopIdList.contains(i.getShopId())).sorted(Comparator.comparing(IMTItemInfo::getInventory).reversed()).collect(Collectors.toList());
-
-
-        if (collect != null && collect.size() > 0) {
-            return collect.get(0).getShopId();
+    private ShopCandidates getShopCandidates(String province, String itemId) {
+        String key = getCurrentSessionId() + "." + province + "." + itemId;
+        ShopCandidates candidates = shopCandidates.get(key);
+        if (candidates == null || candidates.isOlderThan(CANDIDATES_TTL_NANOS)) {
+            candidates = ShopCandidates.build(getShopsByProvince(province, itemId), shopSnapshot().byId(), province);
+            shopCandidates.put(key, candidates);
         }
-
-        return null;
-    }
-
-    /**
-     * 预约本省距离最近的门店
-     *
-     * @param list2
-     * @param province
-     * @param lat
-     * @param lng
-     * @return
-     */
-    public String getMinDistanceShopId(List<IShop> list2, String province, String lat, String lng) {
-        //本省的
-        List<IShop> iShopList = list2.stream().filter(iShop -> iShop.getProvinceName().contains(province))
-                .collect(Collectors.toList());
-
-        MapPoint myPoint = new MapPoint(Double.parseDouble(lat), Double.parseDouble(lng));
-        for (IShop iShop : iShopList) {
-            MapPoint point = new MapPoint(Double.parseDouble(iShop.getLat()), Double.parseDouble(iShop.getLng()));
-            Double disdance = getDisdance(myPoint, point);
-            iShop.setDistance(disdance);
-        }
-
-        List<IShop> collect = iShopList.stream().sorted(Comparator.comparing(IShop::getDistance)).collect(Collectors.toList());
-
-        return collect.get(0).getIShopId();
-
+        return candidates;
     }
 
     public static Double getDisdance(MapPoint point1, MapPoint point2) {
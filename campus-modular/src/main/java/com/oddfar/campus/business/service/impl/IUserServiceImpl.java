@@ -2,6 +2,7 @@ package com.oddfar.campus.business.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import com.alibaba.fastjson2.JSONObject;
+import com.oddfar.campus.business.cache.UserMinuteIndex;
 import com.oddfar.campus.business.entity.IUser;
 import com.oddfar.campus.business.mapper.IUserMapper;
 import com.oddfar.campus.business.service.IUserService;
@@ -25,6 +26,9 @@ public class IUserServiceImpl implements IUserService {
     @Autowired
     private IUserMapper iUserMapper;
 
+    @Autowired
+    private UserMinuteIndex userMinuteIndex;
+
     @Override
     public PageResult<IUser> page(IUser iUser) {
         Long userId = SecurityUtils.getUserId();
@@ -52,26 +56,39 @@ public class IUserServiceImpl implements IUserService {
             IUser iUser = new IUser(mobile, jsonObject);
             iUser.setCreateUser(SecurityUtils.getUserId());
             BeanUtil.copyProperties(iUser, user, "shopType", "minute");
-            return iUserMapper.updateById(user);
+            int rows = iUserMapper.updateById(user);
+            userMinuteIndex.changed(mobile);
+            return rows;
         } else {
             if (StringUtils.isEmpty(deviceId)) {
                 deviceId = UUID.randomUUID().toString().toLowerCase();
             }
             IUser iUser = new IUser(mobile, deviceId, jsonObject);
             iUser.setCreateUser(SecurityUtils.getUserId());
-            return iUserMapper.insert(iUser);
+            int rows = iUserMapper.insert(iUser);
+            userMinuteIndex.changed(mobile);
+            return rows;
         }
     }
 
     @Override
     public List<IUser> selectReservationUser() {
-        return iUserMapper.selectReservationUser();
-
+        return userMinuteIndex.all();
     }
 
     @Override
     public List<IUser> selectReservationUserByMinute(int minute) {
-        return iUserMapper.selectReservationUserByMinute(minute);
+        return userMinuteIndex.get(minute);
+    }
+
+    @Override
+    public IUser selectReservationUserByMobile(Long mobile) {
+        return userMinuteIndex.get(mobile);
+    }
+
+    @Override
+    public void reloadReservationUser() {
+        userMinuteIndex.reload();
     }
 
     @Override
@@ -89,7 +106,9 @@ public class IUserServiceImpl implements IUserService {
             iUser.setDeviceId(UUID.randomUUID().toString().toLowerCase());
         }
         iUser.setCreateUser(SecurityUtils.getUserId());
-        return iUserMapper.insert(iUser);
+        int rows = iUserMapper.insert(iUser);
+        userMinuteIndex.changed(iUser.getMobile());
+        return rows;
     }
 
     @Override
@@ -102,7 +121,9 @@ public class IUserServiceImpl implements IUserService {
         if (currentUserId != 1 && !iUser.getCreateUser().equals(currentUserId)) {
             throw new ServiceException("只能修改自己创建的用户");
         }
-        return iUserMapper.updateById(iUser);
+        int rows = iUserMapper.updateById(iUser);
+        userMinuteIndex.changed(iUser.getMobile());
+        return rows;
     }
 
     @Override
@@ -119,6 +140,8 @@ public class IUserServiceImpl implements IUserService {
             } else {
                 iUserMapper.updateUserMinuteBatch();
             }
+            // 预约分钟整体变化，所有节点重新加载
+            userMinuteIndex.changedAll();
         } catch (Exception e) {
             logger.error("批量更新用户预约时间失败", e);
             throw new ServiceException("批量更新用户预约时间失败: " + e.getMessage());
@@ -127,6 +150,8 @@ public class IUserServiceImpl implements IUserService {
 
     @Override
     public int deleteIUser(Long[] iUserId) {
-        return iUserMapper.deleteIUser(iUserId);
+        int rows = iUserMapper.deleteIUser(iUserId);
+        userMinuteIndex.changed(iUserId);
+        return rows;
     }
 }
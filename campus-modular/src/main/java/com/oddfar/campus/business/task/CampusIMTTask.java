@@ -1,5 +1,7 @@
 package com.oddfar.campus.business.task;
 
+import cn.hutool.core.date.DateUtil;
+import com.oddfar.campus.business.cluster.LeaderElection;
 import com.oddfar.campus.business.service.IMTService;
 import com.oddfar.campus.business.service.IUserService;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +13,8 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.util.Date;
+
 /**
  * i茅台定时任务
  */
@@ -24,6 +28,15 @@ public class CampusIMTTask {
 
     private final IUserService iUserService;
 
+    private final LeaderElection leaderElection;
+
+    /**
+     * 共享任务的执行批次，同一分钟触发的定时任务属于同一批次
+     */
+    private static String runId() {
+        return DateUtil.format(new Date(), "yyyyMMddHHmm");
+    }
+
 
     /**
      * 1：10 批量修改用户随机预约的时间
@@ -31,10 +44,14 @@ public class CampusIMTTask {
     @Async
     @Scheduled(cron = "0 10 1 ? * * ")
     public void updateUserMinuteBatch() {
-        logger.info("「定时任务」开始批量修改用户预约时间");
         try {
-            iUserService.updateUserMinuteBatch();
-            logger.info("「定时任务」批量修改用户预约时间完成");
+            //多节点部署时只由主节点执行
+            if (leaderElection.runAsLeader("updateUserMinuteBatch", runId(), () -> {
+                logger.info("「定时任务」开始批量修改用户预约时间");
+                iUserService.updateUserMinuteBatch();
+            })) {
+                logger.info("「定时任务」批量修改用户预约时间完成");
+            }
         } catch (Exception e) {
             logger.error("「定时任务」批量修改用户预约时间失败", e);
         }
@@ -68,16 +85,61 @@ public class CampusIMTTask {
         }
     }
 
+    /**
+     * 8:58 预约开始前加载当日预约用户索引
+     */
+    @Async
+    @Scheduled(cron = "0 58 8 ? * *")
+    public void reloadReservationUser() {
+        try {
+            iUserService.reloadReservationUser();
+        } catch (Exception e) {
+            logger.error("「定时任务」加载预约用户索引失败", e);
+        }
+    }
+
+    /**
+     * 每个预约分钟批次开始前30秒，预取该批次的预约请求
+     */
+    @Async
+    @Scheduled(cron = "30 59 8 ? * *")
+    @Scheduled(cron = "30 0-58 9 ? * *")
+    public void prefetchBatchTask() {
+        try {
+            imtService.prefetchBatch();
+        } catch (Exception e) {
+            logger.error("「定时任务」预取预约请求失败", e);
+        }
+    }
+
+    /**
+     * 每个预约分钟批次开始前5秒，预热上游DNS和连接
+     */
+    @Async
+    @Scheduled(cron = "55 59 8 ? * *")
+    @Scheduled(cron = "55 0-58 9 ? * *")
+    public void warmUpBatchTask() {
+        try {
+            imtService.warmUpBatch();
+        } catch (Exception e) {
+            logger.error("「定时任务」预热上游连接失败", e);
+        }
+    }
+
     /**
      * 7点和8点的10分、55分刷新数据
      */
     @Async
     @Scheduled(cron = "0 10,55 7,8 ? * * ")
     public void refresh() {
-        logger.info("「定时任务」开始刷新数据（版本号、预约item、门店shop列表）");
         try {
-            imtService.refreshAll();
-            logger.info("「定时任务」刷新数据完成");
+            //多节点部署时只由主节点执行，其他节点通过门店版本通知和场次变化更新本地数据
+            if (leaderElection.runAsLeader("refresh", runId(), () -> {
+                logger.info("「定时任务」开始刷新数据（版本号、预约item、门店shop列表）");
+                imtService.refreshAll();
+            })) {
+                logger.info("「定时任务」刷新数据完成");
+            }
         } catch (Exception e) {
             logger.error("「定时任务」刷新数据失败", e);
         }
@@ -0,0 +1,125 @@
+package com.oddfar.campus.business.utils;
+
+import cn.hutool.crypto.SecureUtil;
+import com.oddfar.campus.common.exception.ServiceException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * i茅台接口加密、签名工具类
+ * <p>
+ * Cipher 和 MessageDigest 不是线程安全的，每个线程各持有一个实例重复使用，
+ * 避免每次调用重新创建实例和计算密钥扩展
+ *
+ * @author oddfar
+ */
+public final class IMTCrypto {
+
+    private static final String SALT = "2af72f100c356273d46284f6fd1dfc08";
+    private static final byte[] AES_KEY = "qbhajinldepmucsonaaaccgypwuvcjaa".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] AES_IV = "2018534749963515".getBytes(StandardCharsets.UTF_8);
+    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Cipher> ENCRYPT_CIPHER = ThreadLocal.withInitial(() -> newCipher(Cipher.ENCRYPT_MODE));
+
+    private static final ThreadLocal<Cipher> DECRYPT_CIPHER = ThreadLocal.withInitial(() -> newCipher(Cipher.DECRYPT_MODE));
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private IMTCrypto() {
+    }
+
+    /**
+     * AES加密
+     *
+     * @param params 待加密参数
+     * @return 加密后的Base64字符串
+     */
+    public static String aesEncrypt(String params) {
+        try {
+            byte[] encrypted = ENCRYPT_CIPHER.get().doFinal(params.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(encrypted);
+        } catch (GeneralSecurityException e) {
+            // 加密失败后Cipher状态不确定，丢弃当前线程的实例
+            ENCRYPT_CIPHER.remove();
+            throw new ServiceException("AES加密失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * AES解密
+     *
+     * @param params 待解密参数（Base64或Hex）
+     * @return 解密后的字符串
+     */
+    public static String aesDecrypt(String params) {
+        try {
+            byte[] decrypted = DECRYPT_CIPHER.get().doFinal(SecureUtil.decode(params));
+            return new String(decrypted, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            DECRYPT_CIPHER.remove();
+            throw new ServiceException("AES解密失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取MD5签名
+     * 验证码签名：密钥+手机号+时间
+     * 登录签名：密钥+mobile+vCode+时间
+     *
+     * @param content 签名内容
+     * @param time    时间戳
+     * @return MD5签名
+     */
+    public static String signature(String content, long time) {
+        return md5Hex(SALT + content + time);
+    }
+
+    /**
+     * MD5摘要，小写十六进制
+     */
+    public static String md5Hex(String text) {
+        MessageDigest md = MD5.get();
+        // digest() 结束后自动重置，异常情况下也保证从干净状态开始
+        md.reset();
+        return toHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 字节数组转小写十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length << 1];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            chars[j++] = HEX_DIGITS[b >>> 4];
+            chars[j++] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    private static Cipher newCipher(int mode) {
+        try {
+            Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
+            cipher.init(mode, new SecretKeySpec(AES_KEY, "AES"), new IvParameterSpec(AES_IV));
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化AES失败", e);
+        }
+    }
+}